@@ -0,0 +1,49 @@
+package sassa.main;
+
+import amidst.mojangapi.minecraftinterface.MinecraftInterfaceException;
+import amidst.mojangapi.world.WorldType;
+import amidst.mojangapi.world.biome.Biome;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BiomeSearcher#getBiomes} over {@link FakeMinecraftInterface}, every
+ * biome in the area of a new seed each call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BiomeListBenchmark {
+
+	@Param({"256", "512", "1024"})
+	int radius;
+
+	private FakeMinecraftInterface minecraftInterface;
+	private long seed;
+
+	@Setup
+	public void setUp() {
+		minecraftInterface = new FakeMinecraftInterface();
+	}
+
+	@Benchmark
+	public Set<Biome> getBiomes() throws MinecraftInterfaceException {
+		minecraftInterface.createWorld(seed++, WorldType.DEFAULT, "");
+		return BiomeSearcher.getBiomes(minecraftInterface, -radius, -radius, 2 * radius);
+	}
+}
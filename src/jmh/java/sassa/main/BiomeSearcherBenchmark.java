@@ -0,0 +1,67 @@
+package sassa.main;
+
+import amidst.mojangapi.minecraftinterface.MinecraftInterfaceException;
+import amidst.mojangapi.world.WorldType;
+import amidst.mojangapi.world.biome.Biome;
+import amidst.mojangapi.world.biome.UnknownBiomeIndexException;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Biome scans over {@link FakeMinecraftInterface}, a new seed every call.
+ * {@code INCLUDE} can stop as soon as jungle and desert are seen,
+ * {@code EXCLUDE} also rejects swamps and has to scan the whole area to accept.
+ * {@code coarseTolerance} below zero scans in one tier, otherwise the rows of
+ * a {@link CoarseBiomeCheck} go first. The plain biome list is in
+ * {@link BiomeListBenchmark}, it has no criteria to vary.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BiomeSearcherBenchmark {
+
+	@Param({"256", "512", "1024"})
+	int radius;
+
+	@Param({"INCLUDE", "EXCLUDE"})
+	String criteria;
+
+	@Param({"-1", "0", "0.01"})
+	double coarseTolerance;
+
+	private FakeMinecraftInterface minecraftInterface;
+	private BiomeFilter filter;
+	private CoarseBiomeCheck coarse;
+	private long seed;
+
+	@Setup
+	public void setUp() throws UnknownBiomeIndexException {
+		minecraftInterface = new FakeMinecraftInterface();
+		Biome[] included = {Biome.getByIndex(21), Biome.getByIndex(2)};
+		Biome[] rejected = criteria.equals("EXCLUDE") ? new Biome[]{Biome.getByIndex(6)} : new Biome[0];
+		filter = new BiomeFilter(included, new HashMap<>(), rejected, new HashMap<>());
+		coarse = coarseTolerance < 0 ? null : new CoarseBiomeCheck(coarseTolerance);
+	}
+
+	@Benchmark
+	public boolean accept() throws MinecraftInterfaceException {
+		minecraftInterface.createWorld(seed++, WorldType.DEFAULT, "");
+		return BiomeSearcher.accept(minecraftInterface, CoordinatesInWorld.origin(), radius, filter, coarse);
+	}
+}
@@ -0,0 +1,75 @@
+package sassa.main;
+
+import amidst.mojangapi.minecraftinterface.MinecraftInterface;
+import amidst.mojangapi.minecraftinterface.RecognisedVersion;
+import amidst.mojangapi.world.WorldType;
+
+/**
+ * Biomes from a hash of the seed and position instead of Minecraft, so the
+ * benchmarks run without an install and every run sees the same worlds.
+ * <p>
+ * The world is split into square blobs of one biome, roughly the size of real
+ * ones, drawn from a handful of common biomes. Like the real interface it
+ * hands out a fresh array per call.
+ */
+public class FakeMinecraftInterface implements MinecraftInterface {
+
+	private static final int[] BIOMES = {
+			0,  // Ocean
+			1,  // Plains
+			2,  // Desert
+			3,  // Mountains
+			4,  // Forest
+			5,  // Taiga
+			6,  // Swamp
+			7,  // River
+			16, // Beach
+			21, // Jungle
+			24, // Deep Ocean
+			27, // Birch Forest
+			29, // Dark Forest
+			35  // Savanna
+	};
+	/** Side of a blob as a power of two in quarter resolution cells, 256 blocks. */
+	private static final int BLOB_SHIFT = 6;
+
+	private volatile long seed;
+
+	@Override
+	public int[] getBiomeData(int x, int y, int width, int height, boolean useQuarterResolution) {
+		int shift = useQuarterResolution ? BLOB_SHIFT : BLOB_SHIFT + 2;
+		int[] data = new int[width * height];
+		for (int j = 0; j < height; j++) {
+			int blobY = (y + j) >> shift;
+			// One hash per run of cells in the same blob, so the fake stays cheap next to the searcher
+			for (int i = 0; i < width; ) {
+				int blobX = (x + i) >> shift;
+				int runEnd = Math.min(width, ((blobX + 1) << shift) - x);
+				int biome = biomeAt(blobX, blobY);
+				for (; i < runEnd; i++) {
+					data[j * width + i] = biome;
+				}
+			}
+		}
+		return data;
+	}
+
+	private int biomeAt(int blobX, int blobY) {
+		// splitmix64 finaliser over the seed and blob
+		long h = seed ^ (blobX * 0x9E3779B97F4A7C15L) ^ (blobY * 0xC2B2AE3D27D4EB4FL);
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		h ^= h >>> 31;
+		return BIOMES[(int) ((h >>> 1) % BIOMES.length)];
+	}
+
+	@Override
+	public void createWorld(long seed, WorldType worldType, String generatorOptions) {
+		this.seed = seed;
+	}
+
+	@Override
+	public RecognisedVersion getRecognisedVersion() {
+		return RecognisedVersion.UNKNOWN;
+	}
+}
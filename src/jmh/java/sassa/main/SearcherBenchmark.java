@@ -0,0 +1,59 @@
+package sassa.main;
+
+import amidst.mojangapi.minecraftinterface.MinecraftInterfaceException;
+import amidst.mojangapi.world.World;
+import amidst.mojangapi.world.WorldBuilder;
+import amidst.mojangapi.world.WorldOptions;
+import amidst.mojangapi.world.WorldSeed;
+import amidst.mojangapi.world.WorldType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a world per seed. {@code createWorldFromString} is the
+ * old path through the seed's decimal string, kept for comparison. Needs
+ * the real amidst classes, run both with
+ * {@code gradle jmh -Pjmh="-prof gc SearcherBenchmark"} and compare the time
+ * and {@code gc.alloc.rate.norm} of the two.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearcherBenchmark {
+
+	private FakeMinecraftInterface minecraftInterface;
+	private WorldBuilder worldBuilder;
+	private Searcher searcher;
+	private long seed;
+
+	@Setup
+	public void setUp() {
+		minecraftInterface = new FakeMinecraftInterface();
+		worldBuilder = WorldBuilder.createSilentPlayerless();
+		searcher = new Searcher(new SearchEngine(new SearchSpec()), 0, minecraftInterface);
+	}
+
+	@Benchmark
+	public World createWorld() throws MinecraftInterfaceException {
+		return searcher.createWorld(seed++);
+	}
+
+	@Benchmark
+	public World createWorldFromString() throws MinecraftInterfaceException {
+		WorldOptions worldOptions = new WorldOptions(WorldSeed.fromUserInput("" + seed++), WorldType.DEFAULT);
+		return worldBuilder.from(minecraftInterface, world -> {}, worldOptions);
+	}
+}
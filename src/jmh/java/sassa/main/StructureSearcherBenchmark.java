@@ -0,0 +1,78 @@
+package sassa.main;
+
+import amidst.mojangapi.minecraftinterface.MinecraftInterfaceException;
+import amidst.mojangapi.world.World;
+import amidst.mojangapi.world.WorldBuilder;
+import amidst.mojangapi.world.WorldOptions;
+import amidst.mojangapi.world.WorldSeed;
+import amidst.mojangapi.world.WorldType;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One structure type counted around 0,0 the way the search does, cycling
+ * through a fixed set of worlds with an empty cache every call, like the
+ * first check of a seed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StructureSearcherBenchmark {
+
+	private static final int WORLDS = 64;
+
+	@Param({"VILLAGE", "PILLAGER_OUTPOST", "DESERT_TEMPLE", "WITCH_HUT", "OCEAN_MONUMENT", "MANSION",
+			"OCEAN_RUINS", "SHIPWRECK", "BURIED_TREASURE", "MINESHAFT", "STRONGHOLD"})
+	StructureSearcher.Type type;
+
+	@Param({"512"})
+	int radius;
+
+	/** How many of the type are needed, more keeps the walk going longer. */
+	@Param({"1", "3"})
+	int amount;
+
+	private FakeMinecraftInterface minecraftInterface;
+	private final World[] worlds = new World[WORLDS];
+	private final StructureCache cache = new StructureCache();
+	private StructureCounter counter;
+	private int next;
+
+	@Setup
+	public void setUp() throws MinecraftInterfaceException {
+		minecraftInterface = new FakeMinecraftInterface();
+		HashMap<StructureSearcher.Type, Integer> amounts = new HashMap<>();
+		amounts.put(type, amount);
+		counter = new StructureCounter(new StructureSearcher.Type[]{type}, amounts, new StructureSearcher.Type[0], new HashMap<>());
+		WorldBuilder worldBuilder = WorldBuilder.createSilentPlayerless();
+		for (int i = 0; i < WORLDS; i++) {
+			worlds[i] = worldBuilder.from(minecraftInterface, world -> {},
+					new WorldOptions(WorldSeed.fromSaveGame(i), WorldType.DEFAULT));
+		}
+	}
+
+	@Benchmark
+	public boolean countStructures() {
+		int i = next++ & (WORLDS - 1);
+		// The fake interface only knows the last seed it was given
+		minecraftInterface.createWorld(i, WorldType.DEFAULT, "");
+		cache.reset();
+		return StructureSearcher.accept(worlds[i], cache, CoordinatesInWorld.origin(), radius, counter);
+	}
+}
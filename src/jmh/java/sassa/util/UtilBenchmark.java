@@ -0,0 +1,58 @@
+package sassa.util;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the search lists from {@code searchables.json}, with the parse
+ * ({@code createSearchLists}) and without it ({@code generateSearchLists}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UtilBenchmark {
+
+	@Param({"Biomes", "Structures", "Biome Sets", "getBiomeSets"})
+	String searchName;
+
+	private final Util util = new Util();
+	private JSONObject searchables;
+	// The lists are looked up by identity, keep the interned literal
+	private String interned;
+
+	@Setup
+	public void setUp() throws IOException, ParseException {
+		Version.registerSupportedVersions();
+		Singleton.getInstance().setMinecraftVersion(Version.V1_15_2);
+		searchables = util.jsonParser("searchables.json");
+		interned = searchName.intern();
+	}
+
+	@Benchmark
+	public Object createSearchLists() throws IOException, ParseException {
+		return util.createSearchLists(interned);
+	}
+
+	@Benchmark
+	public Object generateSearchLists() {
+		String group = interned.equals("getBiomeSets") ? "Biome Sets" : interned;
+		return util.generateSearchLists((JSONObject) searchables.get(group), interned);
+	}
+}
@@ -2,58 +2,150 @@ package sassa.gui;
 
 import javafx.application.Platform;
 import javafx.scene.text.Text;
+import sassa.main.StageTimings;
 import sassa.util.Singleton;
 
-import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Search counters shared by every worker.
+ * <p>
+ * Workers only bump the counters, they never touch the GUI. While a search is
+ * running a publisher reads a snapshot a few times a second and posts a single
+ * update to the FX thread.
+ */
 public class Variables {
-    private static int checkedWorlds = 0;
-    private static int acceptedWorlds = 0;
-    private static int worldsSinceAccepted = 0;
+    /** How often the GUI counters are refreshed. */
+    static final long PUBLISH_INTERVAL_MS = 250;
+
+    // Striped so many workers can count without fighting over one cache line
+    private static final LongAdder checkedWorlds = new LongAdder();
+    private static final AtomicLong acceptedWorlds = new AtomicLong();
+    // Value of checkedWorlds when the last world was accepted
+    private static volatile long checkedAtLastAccept = 0;
+    private static volatile long currentSeed = 0;
     private static Singleton singleton = Singleton.getInstance();
+    // Of the running search, shown next to the counters
+    private static volatile StageTimings stageTimings;
+
+    private static ScheduledExecutorService publisher;
+    // Set while an update is queued on the FX thread, so a slow FX thread never piles up updates
+    private static final AtomicBoolean updatePending = new AtomicBoolean();
 
-    public static void reset(){
-        checkedWorlds = 0;
-        acceptedWorlds = 0;
-        worldsSinceAccepted = 0;
+    public static synchronized void reset(){
+        checkedWorlds.reset();
+        acceptedWorlds.set(0);
+        checkedAtLastAccept = 0;
+        currentSeed = 0;
     }
 
-    public static int checkWorld(){
-        ++worldsSinceAccepted;
-        ++checkedWorlds;
-        // Update gui text
-        Platform.runLater(() -> {
-            Text elem = singleton.getCRejSeed();
-            if (elem != null) elem.setText("" + worldsSinceAccepted);
-            elem = singleton.getTRejSeed();
-            if (elem != null) elem.setText("" + checkedWorlds);
-        });
-        return checkedWorlds;
+    /**
+     * Starts the counters from where a resumed search left off.
+     */
+    public static synchronized void restore(long checked, long accepted){
+        checkedWorlds.add(checked);
+        acceptedWorlds.set(accepted);
+        checkedAtLastAccept = checked;
+    }
+
+    public static void setStageTimings(StageTimings timings){
+        stageTimings = timings;
     }
 
-    public static int acceptWorld(){
-        worldsSinceAccepted = 0;
-        ++acceptedWorlds;
-        return acceptedWorlds;
+    public static void checkWorld(){
+        checkedWorlds.increment();
+    }
+
+    public static synchronized long acceptWorld(){
+        checkedAtLastAccept = checkedWorlds.sum();
+        return acceptedWorlds.incrementAndGet();
     }
 
     public static void updateCurrentSeed(long seed){
-        // Update gui text
+        currentSeed = seed;
+    }
+
+    /**
+     * Starts refreshing the GUI counters at a fixed rate. Does nothing when
+     * there is no GUI.
+     */
+    public static synchronized void startPublisher(){
+        if (publisher != null || singleton.getController() == null) {
+            return;
+        }
+        publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sassa-gui-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleAtFixedRate(Variables::publish, 0, PUBLISH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the publisher and pushes the final values to the GUI.
+     */
+    public static synchronized void stopPublisher(){
+        if (publisher == null) {
+            return;
+        }
+        publisher.shutdownNow();
+        publisher = null;
+        if (Platform.isFxApplicationThread()) {
+            showCounters(checkedWorlds(), worldsSinceAccepted(), currentSeed, formatStageTimings());
+        } else {
+            publish();
+        }
+    }
+
+    private static void publish(){
+        if (!updatePending.compareAndSet(false, true)) {
+            return;
+        }
+        long checked = checkedWorlds();
+        long sinceAccepted = worldsSinceAccepted();
+        long seed = currentSeed;
+        // Merging the histograms is done here, off the FX thread
+        String stats = formatStageTimings();
         Platform.runLater(() -> {
-            Text elem = singleton.getSequenceSeed();
-            if (elem != null) elem.setText("" + seed);
+            updatePending.set(false);
+            showCounters(checked, sinceAccepted, seed, stats);
         });
     }
 
-    public static int checkedWorlds(){
-        return checkedWorlds;
+    private static String formatStageTimings(){
+        StageTimings timings = stageTimings;
+        return timings == null ? "" : timings.format();
+    }
+
+    private static void showCounters(long checked, long sinceAccepted, long seed, String stats){
+        Text elem = singleton.getCRejSeed();
+        if (elem != null) elem.setText("" + sinceAccepted);
+        elem = singleton.getTRejSeed();
+        if (elem != null) elem.setText("" + checked);
+        elem = singleton.getSequenceSeed();
+        if (elem != null) elem.setText("" + seed);
+        elem = singleton.getStageStats();
+        if (elem != null) elem.setText(stats);
+    }
+
+    public static long checkedWorlds(){
+        return checkedWorlds.sum();
+    }
+
+    public static long acceptedWorlds(){
+        return acceptedWorlds.get();
     }
 
-    public static int acceptedWorlds(){
-        return acceptedWorlds;
+    public static long worldsSinceAccepted(){
+        return checkedWorlds.sum() - checkedAtLastAccept;
     }
 
-    public static int worldsSinceAccepted(){
-        return worldsSinceAccepted;
+    public static long currentSeed(){
+        return currentSeed;
     }
 }
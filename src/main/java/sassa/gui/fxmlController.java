@@ -18,14 +18,18 @@ import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import org.json.simple.parser.ParseException;
 import sassa.main.BiomeSearcher;
-import sassa.main.Searcher;
+import sassa.main.Checkpoint;
+import sassa.main.SearchEngine;
+import sassa.main.SearchSpec;
 import sassa.util.Singleton;
 import sassa.util.Util;
 import sassa.util.Version;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Random;
 import java.util.ResourceBundle;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -42,9 +46,12 @@ public class fxmlController implements Initializable {
     private static long elapsedTime;
 
     static Thread t;
-    static Thread t2;
     static boolean allowThreadToSearch = true;
-    static Searcher r;
+    static SearchEngine engine;
+    /** Sequential searches save their progress here, the Resume button picks it up. */
+    static final File DEFAULT_CHECKPOINT_FILE = new File("sassa_checkpoint.json");
+    /** Where the stage timings of a run go when the output is autosaved. */
+    static final File DEFAULT_STATS_FILE = new File("sassa_stats.txt");
 
     public static String minecraftVersion = Version.V1_15_2;
     String[] versions = {
@@ -69,6 +76,9 @@ public class fxmlController implements Initializable {
     @FXML
     private Text tRejSeedCount;
 
+    @FXML
+    private Text stageStats;
+
     @FXML
     private Button startBtn;
 
@@ -78,6 +88,9 @@ public class fxmlController implements Initializable {
     @FXML
     private Button clearBtn;
 
+    @FXML
+    private Button resumeBtn;
+
     @FXML
     private Text timeElapsed;
 
@@ -93,6 +106,12 @@ public class fxmlController implements Initializable {
     @FXML
     private TextField searchRadius;
 
+    @FXML
+    private TextField threadCount;
+
+    @FXML
+    private CheckBox originCentred;
+
     @FXML
     private CheckBox devMode;
 
@@ -117,6 +136,9 @@ public class fxmlController implements Initializable {
     @FXML
     private TextField maxSeed;
 
+    @FXML
+    private CheckBox structureSieve;
+
     @FXML
     private TextArea console;
 
@@ -179,11 +201,14 @@ public class fxmlController implements Initializable {
         singleton.setMCPath(mcPath);
         singleton.setCRejSeed(cRejSeedCount);
         singleton.setTRejSeed(tRejSeedCount);
+        singleton.setStageStats(stageStats);
         singleton.setSeedCount(seedsToFind);
         singleton.setSequenceSeed(sequencedSeed);
         singleton.setStructureGridPane(structuresGrid);
         singleton.setBiomeSetsGridPane(biomeSetsGrid);
         singleton.setAutoSave(autoSaveConsole);
+        // Auto saved seeds reach the file right away, other lines within the default flush interval
+        singleton.setFlushOnAccept(true);
         singleton.setController(this);
         singleton.setWorldType(worldType);
 
@@ -193,6 +218,7 @@ public class fxmlController implements Initializable {
         startBtn.setOnAction(buttonHandler);
         pauseBtn.setOnAction(buttonHandler);
         clearBtn.setOnAction(buttonHandler);
+        resumeBtn.setOnAction(buttonHandler);
         bedrockMode.setOnAction(buttonHandler);
         randomSeed.setOnAction(buttonHandler);
         devMode.setOnAction(buttonHandler);
@@ -204,6 +230,8 @@ public class fxmlController implements Initializable {
                 .observableArrayList(versions));
         mcVersions.setValue(minecraftVersion);
 
+        threadCount.setText("" + Runtime.getRuntime().availableProcessors());
+
         worldType.setItems(FXCollections.observableArrayList(worldTypes));
         singleton.getWorldType().setValue("DEFAULT");
 
@@ -242,11 +270,27 @@ public class fxmlController implements Initializable {
                 try {
                     toggleRunning();
                 } catch (InterruptedException | IOException | FormatException | MinecraftInterfaceCreationException |
-                        UnknownBiomeIndexException e1) {
+                        UnknownBiomeIndexException | ParseException e1) {
                     e1.printStackTrace();
                 }
             } else if (e.getSource() == pauseBtn) {
                 togglePause();
+            } else if (e.getSource() == resumeBtn) {
+                if (running) {
+                    util.console("Stop the current search before resuming another one!");
+                    return;
+                }
+                File file = util.chooseCheckpoint(DEFAULT_CHECKPOINT_FILE);
+                if (file == null) {
+                    return;
+                }
+                try {
+                    start(configureEngine(new SearchEngine(Checkpoint.load(file))));
+                } catch (IOException | ParseException | FormatException | MinecraftInterfaceCreationException |
+                        RuntimeException e1) {
+                    e1.printStackTrace();
+                    util.console("Could not resume from " + file + ": " + e1.getMessage());
+                }
             } else if (e.getSource() == clearBtn) {
                 try {
                     reset();
@@ -275,16 +319,56 @@ public class fxmlController implements Initializable {
 
     };
 
-    Searcher createNewThread() throws IOException, FormatException, MinecraftInterfaceCreationException {
-        r = new Searcher(
-                minecraftVersion,
-                Integer.parseInt(searchRadius.getText()),
-                Integer.parseInt(seedsToFind.getText()),
-                Long.parseLong(minSeed.getText()),
-                Long.parseLong(maxSeed.getText()),
-                RANDOM_SEEDS,
-                BEDROCK);
-        return r;
+    /**
+     * Reads the search settings from the GUI. Done on the FX thread before
+     * starting so the search itself never has to touch the controls.
+     */
+    SearchSpec createSearchSpec() throws IOException, ParseException {
+        util.console("Creating search lists...");
+        SearchSpec spec = new SearchSpec();
+        spec.setMinecraftVersion(minecraftVersion);
+        spec.setMinecraftPath(mcPath.getText());
+        spec.setWorldType(util.getWorldType(worldType.getValue()));
+        spec.setSearchRadius(Integer.parseInt(searchRadius.getText()));
+        spec.setMaximumMatchingWorldsCount(Integer.parseInt(seedsToFind.getText()));
+        spec.setMinSeed(Long.parseLong(minSeed.getText()));
+        spec.setMaxSeed(Long.parseLong(maxSeed.getText()));
+        if (RANDOM_SEEDS) {
+            // A fresh shuffle of the seed space, checked without repeats and resumable like a range
+            spec.setPermuted(true);
+            spec.setPermutationKey(new Random().nextLong());
+        }
+        spec.setRandomSeeds(false);
+        spec.setBedrock(BEDROCK);
+        spec.setStructureSieve(structureSieve.isSelected());
+        spec.setOriginCentred(originCentred.isSelected());
+        spec.setThreadCount(Integer.parseInt(threadCount.getText().trim()));
+        if (autoSaveConsole.isSelected()) {
+            // Only auto save writes files, the progress to resume from among them
+            spec.setCheckpointFile(DEFAULT_CHECKPOINT_FILE);
+            spec.setStatsFile(DEFAULT_STATS_FILE);
+        }
+
+        spec.setBiomes(guiCollector.getBiomesFromArrayList(biomesGrid, "Include"));
+        spec.setRejectedBiomes(guiCollector.getBiomesFromArrayList(biomesGrid, "Exclude"));
+        spec.setStructures(guiCollector.getStructuresFromArrayList(structuresGrid, "Include"));
+        spec.setRejectedStructures(guiCollector.getStructuresFromArrayList(structuresGrid, "Exclude"));
+        spec.setBiomeSets(guiCollector.getBiomesSetsFromHashMap(biomeSetsGrid, "Include"));
+        spec.setRejectedBiomeSets(guiCollector.getBiomesSetsFromHashMap(biomeSetsGrid, "Exclude"));
+        return spec;
+    }
+
+    private SearchEngine configureEngine(SearchEngine newEngine) {
+        engine = newEngine;
+        Variables.setStageTimings(engine.getStageTimings());
+        engine.setOnFinished(() -> Platform.runLater(() -> {
+            try {
+                stop();
+            } catch (InterruptedException | IOException | FormatException | MinecraftInterfaceCreationException e) {
+                e.printStackTrace();
+            }
+        }));
+        return engine;
     }
 
     public void donate(){
@@ -305,7 +389,7 @@ public class fxmlController implements Initializable {
             public void run() {
                 updateDisplay();
             }
-        },DELAY,1);
+        },DELAY,Variables.PUBLISH_INTERVAL_MS);
     }
 
     private void updateDisplay() {
@@ -320,7 +404,7 @@ public class fxmlController implements Initializable {
     }
 
     private void toggleRunning() throws InterruptedException, IOException, FormatException,
-            MinecraftInterfaceCreationException, UnknownBiomeIndexException {
+            MinecraftInterfaceCreationException, UnknownBiomeIndexException, ParseException {
         allowThreadToSearch = true;
         if (running) {
             System.out.println("Shutting Down...");
@@ -339,31 +423,42 @@ public class fxmlController implements Initializable {
         return running;
     }
 
-    private void start() throws IOException, FormatException, MinecraftInterfaceCreationException {
+    private void start() throws IOException, FormatException, MinecraftInterfaceCreationException, ParseException {
+        SearchSpec spec = createSearchSpec();
+        if (spec.isSeedRangeInverted()) {
+            util.console("\nThe min seed is above the max seed!\nSearch has been cancelled.\n");
+            return;
+        }
+        start(configureEngine(new SearchEngine(spec)));
+    }
+
+    private void start(SearchEngine searchEngine) throws IOException, FormatException, MinecraftInterfaceCreationException {
+        t = new Thread(searchEngine, "sassa-search-engine");
         startBtn.setText("Stop");
         searchRadius.setEditable(false);
         seedsToFind.setEditable(false);
+        threadCount.setEditable(false);
         startTime = System.currentTimeMillis();
         elapsedTime = System.currentTimeMillis();
         running = true;
         initTimer();
-        t = new Thread(createNewThread());
+        Variables.startPublisher();
         t.start();
-//        t2 = new Thread(createNewThread());
-//        t2.start();
     }
 
     public void stop() throws InterruptedException, IOException, FormatException, MinecraftInterfaceCreationException {
         searchRadius.setEditable(true);
         seedsToFind.setEditable(true);
+        threadCount.setEditable(true);
         startBtn.setText("Start");
         pauseBtn.setText("Pause");
         running = false;
+        Variables.stopPublisher();
         notificationLabel.setText("Stopped");
         sequencedSeed.setText("0");
         if(timer != null)
         timer.cancel();
-        if (t != null) t.interrupt();
+        if (engine != null) engine.stop();
     }
 
     private void togglePause() {
@@ -371,6 +466,7 @@ public class fxmlController implements Initializable {
             util.console("Cannot pause when you aren't running!");
         } else {
             paused = !paused;
+            if (engine != null) engine.setPaused(paused);
             String text = (paused) ? "Paused" : "Pause";
 
             if (paused) {
@@ -0,0 +1,495 @@
+package sassa.main;
+
+import amidst.mojangapi.world.biome.Biome;
+import amidst.mojangapi.world.biome.UnknownBiomeIndexException;
+import sassa.util.Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Biome criteria compiled to bitmasks over the biome index.
+ * <p>
+ * Biome codes from {@code getBiomeData} are tested with bit operations, no
+ * {@link Biome} objects or collections are involved. Coverage criteria, a
+ * share of the area a biome or set has to reach or stay below, are counted
+ * in an {@code int[]} histogram over the biome index in the same pass, and
+ * region criteria, a connected patch a biome or set has to reach or stay
+ * below, are joined up by {@link BiomeRegions}.
+ * <p>
+ * Each worker keeps its own filter because the per-seed state lives in it.
+ * {@link #reset()} clears that state without allocating.
+ */
+public class BiomeFilter {
+
+	/** Biome indices are below this, amidst knows 256 slots. */
+	static final int BIOME_COUNT = 256;
+	private static final int WORDS = BIOME_COUNT / 64;
+
+	private static final Biome[] BIOMES_BY_INDEX = new Biome[BIOME_COUNT];
+	private static final LongAdder unknownBiomeCodes = new LongAdder();
+	private static final Set<Integer> reportedUnknownCodes = ConcurrentHashMap.newKeySet();
+
+	static {
+		for (int i = 0; i < BIOME_COUNT; i++) {
+			try {
+				BIOMES_BY_INDEX[i] = Biome.getByIndex(i);
+			} catch (UnknownBiomeIndexException e) {
+				BIOMES_BY_INDEX[i] = null;
+			}
+		}
+	}
+
+	private final long[] included = new long[WORDS];
+	private final long[] rejected = new long[WORDS];
+	/** For every biome, a bit for each included set it belongs to. */
+	private final long[] setsByBiome = new long[BIOME_COUNT];
+	private final long allSets;
+
+	// Coverage criteria, the biome indices counted for each and the
+	// percentage of the area they must reach, or stay below when at most
+	private final int[][] coverageMembers;
+	private final double[] coveragePercent;
+	private final boolean[] coverageAtMost;
+	/** Cells the area needs, or may have at most, for each coverage criterion. */
+	private final int[] coverageLimit;
+	private final boolean counting;
+	/** Largest patch criteria, {@code null} without any. */
+	private final BiomeRegions regions;
+	/** Whether a coverage or region criterion is on an included biome or set. */
+	private final boolean measuresIncluded;
+
+	// Per seed state
+	private final long[] seen = new long[WORDS];
+	private final long[] missing = new long[WORDS];
+	private long missingSets;
+	// What was missing at saveMissing(), to tell what a later scan found
+	private final long[] savedMissing = new long[WORDS];
+	private long savedMissingSets;
+	private int matchDistance;
+	/** Cells of every biome in the area so far. */
+	private final int[] histogram = new int[BIOME_COUNT];
+	private int cellsLeft;
+
+	public BiomeFilter(Biome[] biomes, HashMap<Biome, String> biomeSets, Biome[] rejectedBiomes, HashMap<Biome, String> rejectedBiomeSets) {
+		this(biomes, biomeSets, rejectedBiomes, rejectedBiomeSets, new HashMap<>(), new HashMap<>());
+	}
+
+	public BiomeFilter(Biome[] biomes, HashMap<Biome, String> biomeSets, Biome[] rejectedBiomes, HashMap<Biome, String> rejectedBiomeSets,
+			Map<String, Double> coverage, Map<String, Double> rejectedCoverage) {
+		this(biomes, biomeSets, rejectedBiomes, rejectedBiomeSets, coverage, rejectedCoverage, new HashMap<>(), new HashMap<>());
+	}
+
+	/**
+	 * Biomes and sets named in the coverage or region maps are measured
+	 * instead of only looked for.
+	 *
+	 * @param coverage         by biome or set name, the percentage of the area
+	 *                         an included biome or set has to cover at least
+	 * @param rejectedCoverage by biome or set name, the percentage of the area
+	 *                         an excluded biome or set has to stay below
+	 * @param regions          by biome or set name, the cells the largest
+	 *                         connected patch of an included biome or set
+	 *                         needs at least
+	 * @param rejectedRegions  by biome or set name, the cells the largest
+	 *                         connected patch of an excluded biome or set has
+	 *                         to stay below
+	 */
+	public BiomeFilter(Biome[] biomes, HashMap<Biome, String> biomeSets, Biome[] rejectedBiomes, HashMap<Biome, String> rejectedBiomeSets,
+			Map<String, Double> coverage, Map<String, Double> rejectedCoverage, Map<String, Integer> regions, Map<String, Integer> rejectedRegions) {
+		Measures measures = new Measures();
+		for (Biome biome : biomes) {
+			if (!measures.add(biome.getName(), new int[]{biome.getIndex()}, false, coverage, regions)) {
+				set(included, biome.getIndex());
+			}
+		}
+		for (Biome biome : rejectedBiomes) {
+			if (!measures.add(biome.getName(), new int[]{biome.getIndex()}, true, rejectedCoverage, rejectedRegions)) {
+				set(rejected, biome.getIndex());
+			}
+		}
+		for (Map.Entry<String, int[]> e : membersBySet(rejectedBiomeSets).entrySet()) {
+			if (!measures.add(e.getKey(), e.getValue(), true, rejectedCoverage, rejectedRegions)) {
+				// Any member of an excluded set rejects the world, same as an excluded biome
+				for (int index : e.getValue()) {
+					set(rejected, index);
+				}
+			}
+		}
+
+		List<String> setNames = new ArrayList<>();
+		for (Map.Entry<String, int[]> e : membersBySet(biomeSets).entrySet()) {
+			if (measures.add(e.getKey(), e.getValue(), false, coverage, regions)) {
+				continue;
+			}
+			int set = setNames.size();
+			if (set >= 64) {
+				throw new IllegalArgumentException("At most 64 biome sets can be included");
+			}
+			setNames.add(e.getKey());
+			for (int index : e.getValue()) {
+				setsByBiome[index] |= 1L << set;
+			}
+		}
+		allSets = setNames.size() == 64 ? -1L : (1L << setNames.size()) - 1;
+
+		int count = measures.coverageMembers.size();
+		coverageMembers = measures.coverageMembers.toArray(new int[0][]);
+		coveragePercent = new double[count];
+		coverageAtMost = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			coveragePercent[i] = measures.coveragePercent.get(i);
+			coverageAtMost[i] = measures.coverageAtMost.get(i);
+		}
+		coverageLimit = new int[count];
+		counting = count > 0;
+
+		count = measures.regionNames.size();
+		boolean measuresIncluded = false;
+		int[] regionLimits = new int[count];
+		boolean[] regionAtMost = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			regionLimits[i] = measures.regionLimits.get(i);
+			regionAtMost[i] = measures.regionAtMost.get(i);
+			measuresIncluded |= !regionAtMost[i];
+		}
+		for (boolean atMost : coverageAtMost) {
+			measuresIncluded |= !atMost;
+		}
+		this.measuresIncluded = measuresIncluded;
+		this.regions = count == 0 ? null : new BiomeRegions(measures.regionNames.toArray(new String[0]),
+				measures.regionMembers.toArray(new long[0][]), regionLimits, regionAtMost);
+		reset();
+	}
+
+	/**
+	 * Collects the coverage and region criteria while the constructor sorts
+	 * the entries.
+	 */
+	private static class Measures {
+		final List<int[]> coverageMembers = new ArrayList<>();
+		final List<Double> coveragePercent = new ArrayList<>();
+		final List<Boolean> coverageAtMost = new ArrayList<>();
+		final List<String> regionNames = new ArrayList<>();
+		final List<long[]> regionMembers = new ArrayList<>();
+		final List<Integer> regionLimits = new ArrayList<>();
+		final List<Boolean> regionAtMost = new ArrayList<>();
+
+		/**
+		 * Adds the criteria the maps hold for an entry.
+		 *
+		 * @return whether the entry is measured, rather than only looked for
+		 */
+		boolean add(String name, int[] members, boolean atMost, Map<String, Double> coverage, Map<String, Integer> regions) {
+			boolean measured = false;
+			if (coverage.containsKey(name)) {
+				coverageMembers.add(members);
+				coveragePercent.add(coverage.get(name));
+				coverageAtMost.add(atMost);
+				measured = true;
+			}
+			if (regions.containsKey(name)) {
+				long[] mask = new long[WORDS];
+				for (int index : members) {
+					set(mask, index);
+				}
+				regionNames.add(name);
+				regionMembers.add(mask);
+				regionLimits.add(regions.get(name));
+				regionAtMost.add(atMost);
+				measured = true;
+			}
+			return measured;
+		}
+	}
+
+	private static Map<String, int[]> membersBySet(HashMap<Biome, String> biomeSets) {
+		Map<String, List<Integer>> lists = new LinkedHashMap<>();
+		for (Map.Entry<Biome, String> e : biomeSets.entrySet()) {
+			lists.computeIfAbsent(e.getValue(), k -> new ArrayList<>()).add(e.getKey().getIndex());
+		}
+		Map<String, int[]> sets = new LinkedHashMap<>();
+		for (Map.Entry<String, List<Integer>> e : lists.entrySet()) {
+			sets.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+		}
+		return sets;
+	}
+
+	private static void set(long[] mask, int index) {
+		mask[index >>> 6] |= 1L << index;
+	}
+
+	/**
+	 * The biome for a code, or {@code null} if amidst doesn't know it. Unknown
+	 * codes are counted and only reported the first time they show up.
+	 */
+	static Biome getBiome(int code) {
+		Biome biome = code >= 0 && code < BIOME_COUNT ? BIOMES_BY_INDEX[code] : null;
+		if (biome == null) {
+			unknownBiome(code);
+		}
+		return biome;
+	}
+
+	private static void unknownBiome(int code) {
+		unknownBiomeCodes.increment();
+		if (reportedUnknownCodes.add(code)) {
+			Util.console("No biome found: " + code + "! Further occurrences are only counted.");
+		}
+	}
+
+	/**
+	 * How many unknown biome codes have been seen since startup.
+	 */
+	public static long unknownBiomeCodes() {
+		return unknownBiomeCodes.sum();
+	}
+
+	public boolean isEmpty() {
+		for (int i = 0; i < WORDS; i++) {
+			if (included[i] != 0 || rejected[i] != 0) {
+				return false;
+			}
+		}
+		return allSets == 0 && !counting && regions == null;
+	}
+
+	/**
+	 * Whether a world can be accepted before the whole area is scanned, only
+	 * true when no biome is excluded outright. Coverage and region limits on
+	 * excluded biomes are left to {@link #isSatisfied()}, which knows the
+	 * cells left.
+	 */
+	public boolean canAcceptEarly() {
+		for (int i = 0; i < WORDS; i++) {
+			if (rejected[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Starts a new seed.
+	 */
+	public void reset() {
+		for (int i = 0; i < WORDS; i++) {
+			seen[i] = 0;
+			missing[i] = included[i];
+		}
+		missingSets = allSets;
+		matchDistance = -1;
+		if (counting) {
+			Arrays.fill(histogram, 0);
+		}
+		cellsLeft = 0;
+	}
+
+	/**
+	 * Sets the size of the area of the current seed in cells, which the
+	 * coverage percentages are taken of and the regions are laid out on.
+	 * Call after {@link #reset()}.
+	 */
+	public void setArea(int width, int height) {
+		int cells = width * height;
+		cellsLeft = cells;
+		if (regions != null) {
+			regions.reset(width, height);
+		}
+		for (int i = 0; i < coverageLimit.length; i++) {
+			int cellsAtPercent = (int) Math.ceil(coveragePercent[i] * cells / 100);
+			// Staying below a percentage allows one cell less than reaching it
+			coverageLimit[i] = coverageAtMost[i] ? cellsAtPercent - 1 : cellsAtPercent;
+		}
+	}
+
+	/**
+	 * How far from the centre, in blocks, every included biome and set was
+	 * found for the current seed, {@code -1} while they have not been or
+	 * nothing is included. Only as exact as the scan that found them.
+	 */
+	public int getMatchDistance() {
+		return matchDistance;
+	}
+
+	void setMatchDistance(int matchDistance) {
+		if ((criteriaCount() > 0 || measuresIncluded) && this.matchDistance < 0) {
+			this.matchDistance = matchDistance;
+		}
+	}
+
+	/**
+	 * Adds a block of biome codes to the current seed. Every cell of the area
+	 * has to be added exactly once for the coverage and regions to be right.
+	 *
+	 * @param x     the column of the block in the area, in cells
+	 * @param y     the row of the block in the area, in cells
+	 * @param width the width of the block in cells
+	 * @return {@code false} if an excluded biome was found, or a coverage or
+	 *         region criterion can no longer be met with the cells left
+	 */
+	public boolean add(int[] codes, int x, int y, int width) {
+		if (!add(codes, counting)) {
+			return false;
+		}
+		if (regions != null && (!regions.add(codes, x, y, width) || !regions.isPossible())) {
+			return false;
+		}
+		if (counting) {
+			cellsLeft -= codes.length;
+			return isCoveragePossible();
+		}
+		return true;
+	}
+
+	/**
+	 * Adds a sample of biome codes, only checked for which biomes are there.
+	 * The coverage is left alone, so the same cells can be added again later.
+	 *
+	 * @return {@code false} if an excluded biome was found
+	 */
+	public boolean addSample(int[] codes) {
+		return add(codes, false);
+	}
+
+	private boolean add(int[] codes, boolean count) {
+		for (int code : codes) {
+			if (code < 0 || code >= BIOME_COUNT || BIOMES_BY_INDEX[code] == null) {
+				unknownBiome(code);
+				continue;
+			}
+			if (count) {
+				histogram[code]++;
+			}
+			int word = code >>> 6;
+			long bit = 1L << code;
+			if ((seen[word] & bit) != 0) {
+				continue;
+			}
+			seen[word] |= bit;
+			if ((rejected[word] & bit) != 0) {
+				return false;
+			}
+			missing[word] &= ~bit;
+			missingSets &= ~setsByBiome[code];
+		}
+		return true;
+	}
+
+	private int covered(int criterion) {
+		int cells = 0;
+		for (int index : coverageMembers[criterion]) {
+			cells += histogram[index];
+		}
+		return cells;
+	}
+
+	/**
+	 * Whether every coverage criterion can still be met, given the cells left.
+	 */
+	private boolean isCoveragePossible() {
+		for (int i = 0; i < coverageMembers.length; i++) {
+			int cells = covered(i);
+			if (coverageAtMost[i] ? cells > coverageLimit[i] : cells + cellsLeft < coverageLimit[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether every coverage criterion is met whatever the cells left hold.
+	 */
+	private boolean isCoverageMet() {
+		for (int i = 0; i < coverageMembers.length; i++) {
+			int cells = covered(i);
+			if (coverageAtMost[i] ? cells + cellsLeft > coverageLimit[i] : cells < coverageLimit[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The number of included biomes and sets.
+	 */
+	public int criteriaCount() {
+		int count = Long.bitCount(allSets);
+		for (int i = 0; i < WORDS; i++) {
+			count += Long.bitCount(included[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * The number of included biomes and sets not seen yet for the current seed.
+	 */
+	public int missingCount() {
+		int count = Long.bitCount(missingSets);
+		for (int i = 0; i < WORDS; i++) {
+			count += Long.bitCount(missing[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Remembers which included biomes and sets are still missing, see
+	 * {@link #foundSinceSave()}.
+	 */
+	public void saveMissing() {
+		System.arraycopy(missing, 0, savedMissing, 0, WORDS);
+		savedMissingSets = missingSets;
+	}
+
+	/**
+	 * The number of included biomes and sets seen since {@link #saveMissing()}
+	 * that had not been seen before.
+	 */
+	public int foundSinceSave() {
+		int count = Long.bitCount(savedMissingSets & ~missingSets);
+		for (int i = 0; i < WORDS; i++) {
+			count += Long.bitCount(savedMissing[i] & ~missing[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Whether every included biome and a member of every included set has
+	 * been seen for the current seed, and every coverage and region criterion
+	 * is met whatever is left of the area.
+	 */
+	public boolean isSatisfied() {
+		for (int i = 0; i < WORDS; i++) {
+			if (missing[i] != 0) {
+				return false;
+			}
+		}
+		return missingSets == 0 && (!counting || isCoverageMet()) && (regions == null || regions.isMet());
+	}
+
+	/**
+	 * The largest patch of every region criterion for the current seed, like
+	 * {@code Mushroom Fields region 412 cells}, or an empty string without any.
+	 * A scan that stopped early may have left part of a patch out.
+	 */
+	public String describeRegions() {
+		if (regions == null) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < regions.size(); i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(regions.name(i)).append(" region ").append(regions.largest(i)).append(" cells");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,229 @@
+package sassa.main;
+
+import java.util.Arrays;
+
+/**
+ * The largest connected patch of a biome or set of biomes in the search area,
+ * for criteria like one mushroom island of at least some size rather than
+ * scattered pieces of one.
+ * <p>
+ * Cells are connected to the four next to them. Every criterion has a
+ * union-find over the cells of the area, roots hold the negated size of their
+ * patch, and each cell is joined with the neighbours already added as its
+ * tile arrives, so tiles can come in any order. Which cells have been added is
+ * told apart by a stamp per seed, so nothing is cleared between seeds and
+ * nothing is allocated unless the area grows.
+ * <p>
+ * Costs five bytes per cell plus four per criterion. One per worker, nothing
+ * here is thread safe.
+ */
+class BiomeRegions {
+
+	private final String[] names;
+	/** For each criterion, a bit for every biome index that belongs to it. */
+	private final long[][] members;
+	/** Cells the largest patch needs, or must stay below when at most. */
+	private final int[] limits;
+	private final boolean[] atMost;
+
+	private int width;
+	private int height;
+	private int[][] parents;
+	private int[] stamps;
+	private byte[] codes;
+	private int stamp;
+
+	// Per seed state
+	private final int[] largest;
+	private final int[] memberCells;
+	private int cellsLeft;
+
+	/**
+	 * @param members for each criterion, a bit for every biome index in it
+	 * @param limits  the size in cells the largest patch needs, or must stay
+	 *                below for the criteria that are at most
+	 */
+	BiomeRegions(String[] names, long[][] members, int[] limits, boolean[] atMost) {
+		this.names = names;
+		this.members = members;
+		this.limits = limits;
+		this.atMost = atMost;
+		this.largest = new int[members.length];
+		this.memberCells = new int[members.length];
+		this.parents = new int[members.length][0];
+		this.stamps = new int[0];
+		this.codes = new byte[0];
+	}
+
+	int size() {
+		return members.length;
+	}
+
+	String name(int criterion) {
+		return names[criterion];
+	}
+
+	/**
+	 * The size in cells of the largest patch of a criterion for the current seed.
+	 */
+	int largest(int criterion) {
+		return largest[criterion];
+	}
+
+	/**
+	 * Starts a new seed on an area, the buffers only grow when it is larger
+	 * than any before.
+	 */
+	void reset(int width, int height) {
+		this.width = width;
+		this.height = height;
+		int cells = width * height;
+		if (stamps.length < cells) {
+			stamps = new int[cells];
+			codes = new byte[cells];
+			for (int i = 0; i < parents.length; i++) {
+				parents[i] = new int[cells];
+			}
+			stamp = 0;
+		}
+		if (++stamp == 0) {
+			// Wrapped around, old stamps could pass for new ones
+			Arrays.fill(stamps, 0);
+			stamp = 1;
+		}
+		Arrays.fill(largest, 0);
+		Arrays.fill(memberCells, 0);
+		cellsLeft = cells;
+	}
+
+	private boolean isMember(int criterion, int code) {
+		return (members[criterion][code >>> 6] & (1L << code)) != 0;
+	}
+
+	/**
+	 * Adds a block of biome codes at a position in the area.
+	 *
+	 * @return {@code false} once a patch reached a size it must stay below
+	 */
+	boolean add(int[] block, int x, int y, int blockWidth) {
+		int blockHeight = block.length / blockWidth;
+		for (int j = 0; j < blockHeight; j++) {
+			int row = (y + j) * width;
+			for (int i = 0; i < blockWidth; i++) {
+				int code = block[j * blockWidth + i];
+				int cell = row + x + i;
+				if (code < 0 || code >= BiomeFilter.BIOME_COUNT) {
+					// Not a biome, never a member, so it is left out like a cell not added yet
+					stamps[cell] = 0;
+					continue;
+				}
+				stamps[cell] = stamp;
+				codes[cell] = (byte) code;
+				for (int c = 0; c < members.length; c++) {
+					if (isMember(c, code) && !join(c, cell, x + i, y + j)) {
+						return false;
+					}
+				}
+			}
+		}
+		cellsLeft -= block.length;
+		return true;
+	}
+
+	/**
+	 * Makes a cell a patch of its own and joins it with every neighbour of
+	 * the same criterion that has been added.
+	 */
+	private boolean join(int criterion, int cell, int x, int y) {
+		int[] parent = parents[criterion];
+		parent[cell] = -1;
+		memberCells[criterion]++;
+		int root = cell;
+		if (x > 0) {
+			root = union(criterion, parent, root, cell - 1);
+		}
+		if (x < width - 1) {
+			root = union(criterion, parent, root, cell + 1);
+		}
+		if (y > 0) {
+			root = union(criterion, parent, root, cell - width);
+		}
+		if (y < height - 1) {
+			root = union(criterion, parent, root, cell + width);
+		}
+		int size = -parent[root];
+		if (size > largest[criterion]) {
+			largest[criterion] = size;
+		}
+		return !atMost[criterion] || largest[criterion] < limits[criterion];
+	}
+
+	/**
+	 * Joins the patch rooted at {@code root} with a neighbour's, if the
+	 * neighbour has been added and is of the criterion.
+	 *
+	 * @return the root of the joined patch
+	 */
+	private int union(int criterion, int[] parent, int root, int neighbour) {
+		if (stamps[neighbour] != stamp || !isMember(criterion, codes[neighbour] & 0xff)) {
+			return root;
+		}
+		int other = find(parent, neighbour);
+		if (other == root) {
+			return root;
+		}
+		// The smaller patch goes under the larger one, sizes are negative
+		if (parent[other] < parent[root]) {
+			parent[other] += parent[root];
+			parent[root] = other;
+			return other;
+		}
+		parent[root] += parent[other];
+		parent[other] = root;
+		return root;
+	}
+
+	private static int find(int[] parent, int cell) {
+		while (parent[cell] >= 0) {
+			int next = parent[cell];
+			// Path halving, every other cell on the way skips its parent
+			if (parent[next] >= 0) {
+				parent[cell] = parent[next];
+			}
+			cell = next;
+		}
+		return cell;
+	}
+
+	/**
+	 * Whether every criterion can still be met, given the cells left. A
+	 * patch can at most take in every cell of its criterion and every cell
+	 * not yet added.
+	 */
+	boolean isPossible() {
+		for (int c = 0; c < members.length; c++) {
+			if (!atMost[c] && largest[c] < limits[c] && memberCells[c] + cellsLeft < limits[c]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether every criterion is met whatever the cells left hold. Before the
+	 * whole area is in, a patch that has to stay small is only safe while
+	 * all its cells and all the cells left together stay below the limit.
+	 */
+	boolean isMet() {
+		for (int c = 0; c < members.length; c++) {
+			if (atMost[c]) {
+				if (largest[c] >= limits[c] || cellsLeft > 0 && memberCells[c] + cellsLeft >= limits[c]) {
+					return false;
+				}
+			} else if (largest[c] < limits[c]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -1,34 +1,13 @@
 package sassa.main;
 
-import amidst.logging.AmidstLogger;
-import amidst.mojangapi.file.LauncherProfile;
-import amidst.mojangapi.file.MinecraftInstallation;
 import amidst.mojangapi.minecraftinterface.MinecraftInterface;
-import amidst.mojangapi.minecraftinterface.MinecraftInterfaceCreationException;
 import amidst.mojangapi.minecraftinterface.MinecraftInterfaceException;
-import amidst.mojangapi.minecraftinterface.MinecraftInterfaces;
-import amidst.mojangapi.world.World;
-import amidst.mojangapi.world.WorldBuilder;
-import amidst.mojangapi.world.WorldOptions;
-import amidst.mojangapi.world.WorldSeed;
 import amidst.mojangapi.world.biome.Biome;
-import amidst.mojangapi.world.biome.UnknownBiomeIndexException;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
 import amidst.mojangapi.world.coordinates.Resolution;
-import amidst.parsing.FormatException;
-import javafx.application.Platform;
-import org.json.simple.parser.ParseException;
-import sassa.gui.Variables;
-import sassa.gui.fxmlController;
-import sassa.gui.guiCollector;
-import sassa.util.Singleton;
-import sassa.util.Util;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.util.*;
-import java.util.function.Consumer;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * A service that searches for worlds that match specific criteria.
@@ -36,84 +15,160 @@ import java.util.function.Consumer;
  * @author scudobuio, Zodsmar, YourCoalAlt
  */
 public class BiomeSearcher {
-	static Set<Biome> getBiomes(MinecraftInterface minecraftInterface, long nwCornerX, long nwCornerY, int radius) throws MinecraftInterfaceException, UnknownBiomeIndexException {
+	/**
+	 * Side length of a scan tile in quarter resolution cells (256 blocks).
+	 * Only one tile of biome data is held at a time, however big the radius.
+	 */
+	static final int TILE_SIZE = 64;
+
+	static Set<Biome> getBiomes(MinecraftInterface minecraftInterface, long nwCornerX, long nwCornerY, int radius) throws MinecraftInterfaceException {
 		Set<Biome> biomes = new HashSet<>();
-		int[] biomeCodes = minecraftInterface.getBiomeData(
-				(int) (Resolution.QUARTER.convertFromWorldToThis(nwCornerX)),
-				(int) (Resolution.QUARTER.convertFromWorldToThis(nwCornerY)),
-				radius / 4,
-				radius / 4,
-				true // useQuarterResolution
-		);
-		for(int code: biomeCodes){
-			try{
-				biomes.add(Biome.getByIndex(code));
-			} catch (UnknownBiomeIndexException e) {
-				System.out.println("No biome found: " + code + "!");
+		int quarterX = (int) (Resolution.QUARTER.convertFromWorldToThis(nwCornerX));
+		int quarterY = (int) (Resolution.QUARTER.convertFromWorldToThis(nwCornerY));
+		int size = radius / 4;
+		for (int tileY = 0; tileY < size; tileY += TILE_SIZE) {
+			for (int tileX = 0; tileX < size; tileX += TILE_SIZE) {
+				int[] biomeCodes = getTile(minecraftInterface, quarterX, quarterY, size, tileX, tileY);
+				for(int code: biomeCodes){
+					Biome biome = BiomeFilter.getBiome(code);
+					if (biome != null) {
+						biomes.add(biome);
+					}
+				}
 			}
 		}
 		return biomes;
 	}
 
+	/**
+	 * Fetches one tile of a square area at quarter resolution, tiles on the
+	 * east and south edges are cut to the area.
+	 */
+	static int[] getTile(MinecraftInterface minecraftInterface, int quarterX, int quarterY, int size, int tileX, int tileY) throws MinecraftInterfaceException {
+		return minecraftInterface.getBiomeData(
+				quarterX + tileX,
+				quarterY + tileY,
+				Math.min(TILE_SIZE, size - tileX),
+				Math.min(TILE_SIZE, size - tileY),
+				true // useQuarterResolution
+		);
+	}
+
 	/**
 	 * Determines whether to accept a world.
+	 * <p>
+	 * The area is fetched a tile at a time, in rings of tiles out from the
+	 * centre, and every tile is checked as soon as it arrives. The scan stops
+	 * at the first excluded biome, or once every included biome and set has
+	 * been seen if nothing is excluded. Matches tend to lie near spawn, so on
+	 * a large area that is usually long before the edge.
 	 *
-	 * @throws MinecraftInterfaceCreationException
-	 * @throws FormatException
-	 * @throws IOException
-	 * @throws InterruptedException
+	 * @param filter the worker's compiled biome criteria, reset here. Once the
+	 *               world is accepted it knows how close the matches were, see
+	 *               {@link BiomeFilter#getMatchDistance()}
 	 */
+	public static boolean accept(MinecraftInterface minecraftInterface, CoordinatesInWorld center, int SearchRadius, BiomeFilter filter) throws MinecraftInterfaceException {
+		return accept(minecraftInterface, center, SearchRadius, filter, null);
+	}
 
-	public static boolean accept(World world, MinecraftInterface minecraftInterface, CoordinatesInWorld center, int SearchRadius, Biome[] biomes, HashMap<Biome, String> biomeSets, Biome[] rejectedBiomes, HashMap<Biome, String> rejectedBiomeSets) throws MinecraftInterfaceException, InterruptedException,
-			IOException, FormatException, MinecraftInterfaceCreationException, ParseException, UnknownBiomeIndexException {
-		long searchCenterX = center.getX();
-		long searchCenterY = center.getY();
-
-		Set<Biome> undiscoveredBiomes = new HashSet<>(Arrays.asList(biomes));
-		Set<Biome> undiscoveredRejectedBiomes = new HashSet<>(Arrays.asList(rejectedBiomes));
-		HashMap<Biome, String> undiscoveredBiomeSets = new HashMap<>(biomeSets);
-		HashMap<Biome, String> undiscoveredRejectedBiomeSets = new HashMap<>(rejectedBiomeSets);
-		// Only search if lists are not empty
-		if (!undiscoveredBiomes.isEmpty() || !undiscoveredRejectedBiomes.isEmpty() || !undiscoveredBiomeSets.isEmpty() || !undiscoveredRejectedBiomeSets.isEmpty()) {
-			Set<Biome> biomeData = getBiomes(
-					minecraftInterface,
-					searchCenterX - SearchRadius,
-					searchCenterY - SearchRadius,
-					2 * SearchRadius);
-
-			for (Biome biome: biomeData) {
-
-				// Remove from included biomes list
-				undiscoveredBiomes.remove(biome);
-
-				// Check if any excluded biomes have been found, if so seed is rejected
-				if (undiscoveredRejectedBiomes.contains(biome)) {
-					return false;
-				}
-
-				// Remove from included biome sets list
-				if (undiscoveredBiomeSets.containsKey(biome)) {
-					String setValue = undiscoveredBiomeSets.get(biome);
-					// Get the iterator over the HashMap
-					undiscoveredBiomeSets.entrySet()
-							.removeIf(
-									entry -> (setValue.equals(entry.getValue())));
-				}
+	/**
+	 * Determines whether to accept a world, checking the rows of a
+	 * {@link CoarseBiomeCheck} first if there is one. Only worlds the rows
+	 * cannot decide on are scanned in full.
+	 */
+	static boolean accept(MinecraftInterface minecraftInterface, CoordinatesInWorld center, int SearchRadius, BiomeFilter filter, CoarseBiomeCheck coarse) throws MinecraftInterfaceException {
+		filter.reset();
+		// Only search if there are criteria
+		if (filter.isEmpty()) {
+			return true;
+		}
+		// Without exclusions nothing later in the area can reject the world
+		boolean canAcceptEarly = filter.canAcceptEarly();
+		int quarterX = (int) (Resolution.QUARTER.convertFromWorldToThis(center.getX() - SearchRadius));
+		int quarterY = (int) (Resolution.QUARTER.convertFromWorldToThis(center.getY() - SearchRadius));
+		int size = (2 * SearchRadius) / 4;
+		filter.setArea(size, size);
 
-				// Check if any excluded biome sets have been found, if so seed is rejected
-				if (undiscoveredRejectedBiomeSets.containsKey(biome)) {
-					return false;
+		if (coarse != null) {
+			if (!coarse.scan(minecraftInterface, quarterX, quarterY, size, filter)) {
+				return false;
+			}
+			if (coarse.audit()) {
+				return audit(minecraftInterface, quarterX, quarterY, size, SearchRadius, filter, coarse);
+			}
+			if (filter.isSatisfied()) {
+				// The rows span the whole area, the matches are somewhere in it
+				filter.setMatchDistance(SearchRadius);
+				if (canAcceptEarly) {
+					return true;
 				}
+			} else if (filter.missingCount() > 0 && coarse.canReject(filter.criteriaCount())) {
+				// Only a missing biome or set is what the rows are trusted on, coverage
+				// and regions aren't measured on them and are left to the full scan
+				return false;
 			}
 		}
+		// The rows already seen are seen again, the filter ignores them
+		return scanRings(minecraftInterface, quarterX, quarterY, size, SearchRadius, filter, canAcceptEarly);
+	}
 
-		if (undiscoveredBiomes.isEmpty() && undiscoveredBiomeSets.isEmpty()) {
-			return true;
+	/**
+	 * Scans the whole area after the rows and records what the rows missed.
+	 * Worlds with an excluded biome are left out of the record, they are
+	 * never accepted either way.
+	 */
+	private static boolean audit(MinecraftInterface minecraftInterface, int quarterX, int quarterY, int size, int radius, BiomeFilter filter, CoarseBiomeCheck coarse) throws MinecraftInterfaceException {
+		filter.saveMissing();
+		if (!scanRings(minecraftInterface, quarterX, quarterY, size, radius, filter, false)) {
+			return false;
 		}
+		coarse.record(filter.criteriaCount() - filter.missingCount(), filter.foundSinceSave());
+		return filter.isSatisfied();
+	}
 
-//		System.out.println(undiscoveredStructures);
-//		System.out.println(undiscoveredBiomes);
-//		System.out.println(undiscoveredBiomeSets);
-		return false;
+	/**
+	 * Walks the tiles of a square area in rings out from its centre tile.
+	 * Ring {@code r} holds the tiles {@code r} tiles away from the centre
+	 * tile, each ring is walked along its top and bottom rows and down both
+	 * sides in between, and tiles are cut to the area.
+	 * <p>
+	 * When the last included biome or set is seen the filter is given the
+	 * distance from the centre to the outer edge of that ring, in blocks.
+	 *
+	 * @param acceptEarly whether to stop once the filter is satisfied
+	 * @return {@code false} if an excluded biome was found, otherwise whether
+	 *         the filter is satisfied
+	 */
+	static boolean scanRings(MinecraftInterface minecraftInterface, int quarterX, int quarterY, int size, int radius, BiomeFilter filter, boolean acceptEarly) throws MinecraftInterfaceException {
+		// The centre tile is centred on the centre of the area
+		int first = size / 2 - TILE_SIZE / 2;
+		int rings = Math.max(0, Math.floorDiv(Math.max(first, size - first - TILE_SIZE) + TILE_SIZE - 1, TILE_SIZE));
+		boolean satisfied = filter.isSatisfied();
+		for (int ring = 0; ring <= rings; ring++) {
+			for (int j = -ring; j <= ring; j++) {
+				// Whole rows at the top and bottom of the ring, only both ends in between
+				int step = j == -ring || j == ring ? 1 : 2 * ring;
+				for (int i = -ring; i <= ring; i += step) {
+					int x0 = Math.max(0, first + i * TILE_SIZE);
+					int y0 = Math.max(0, first + j * TILE_SIZE);
+					int x1 = Math.min(size, first + (i + 1) * TILE_SIZE);
+					int y1 = Math.min(size, first + (j + 1) * TILE_SIZE);
+					if (x0 >= x1 || y0 >= y1) {
+						continue;
+					}
+					if (!filter.add(minecraftInterface.getBiomeData(quarterX + x0, quarterY + y0, x1 - x0, y1 - y0, true), x0, y0, x1 - x0)) {
+						return false;
+					}
+					if (!satisfied && filter.isSatisfied()) {
+						satisfied = true;
+						filter.setMatchDistance(Math.min(radius, ((ring * TILE_SIZE) + TILE_SIZE / 2) * 4));
+						if (acceptEarly) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return satisfied;
 	}
 }
@@ -0,0 +1,163 @@
+package sassa.main;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of a sequential search, enough to carry on where it stopped.
+ * <p>
+ * The range is split into chunks of {@link SearchEngine#CHUNK_SIZE} seeds.
+ * Every chunk below {@code nextChunk} is finished, as are the ones listed in
+ * {@code doneChunks}. Chunks a worker was in the middle of are listed with
+ * the first seed that worker had not finished yet. Everything else still has
+ * to be checked.
+ * <p>
+ * The file is JSON and always replaced as a whole, a crash while saving
+ * leaves the previous checkpoint intact.
+ */
+public class Checkpoint {
+
+	private final SearchSpec spec;
+	private final long nextChunk;
+	private final List<Long> doneChunks;
+	/** Pairs of chunk index and first unfinished seed. */
+	private final List<long[]> inProgress;
+	private final List<Long> acceptedSeeds;
+	private final long checkedWorlds;
+
+	Checkpoint(SearchSpec spec, long nextChunk, List<Long> doneChunks, List<long[]> inProgress,
+			List<Long> acceptedSeeds, long checkedWorlds) {
+		this.spec = spec;
+		this.nextChunk = nextChunk;
+		this.doneChunks = doneChunks;
+		this.inProgress = inProgress;
+		this.acceptedSeeds = acceptedSeeds;
+		this.checkedWorlds = checkedWorlds;
+	}
+
+	public SearchSpec getSpec() {
+		return spec;
+	}
+
+	long getNextChunk() {
+		return nextChunk;
+	}
+
+	List<Long> getDoneChunks() {
+		return doneChunks;
+	}
+
+	List<long[]> getInProgress() {
+		return inProgress;
+	}
+
+	List<Long> getAcceptedSeeds() {
+		return acceptedSeeds;
+	}
+
+	long getCheckedWorlds() {
+		return checkedWorlds;
+	}
+
+	/**
+	 * Reads a checkpoint. Its spec becomes the selected version on the
+	 * {@link sassa.util.Singleton}, like {@link SearchSpec#fromJson} does, and
+	 * keeps saving to the same file.
+	 */
+	public static Checkpoint load(File file) throws IOException, ParseException {
+		JSONObject jo;
+		try (Reader reader = new FileReader(file)) {
+			jo = (JSONObject) new JSONParser().parse(reader);
+		}
+		if (((Number) jo.get("chunkSize")).intValue() != SearchEngine.CHUNK_SIZE) {
+			throw new IOException("Checkpoint " + file + " was written with a different chunk size");
+		}
+		SearchSpec spec = SearchSpec.fromJson((JSONObject) jo.get("spec"));
+		if (spec.isRandomSeeds()) {
+			throw new IOException("Checkpoint " + file + " is not of a sequential search");
+		}
+		spec.setCheckpointFile(file);
+
+		List<long[]> inProgress = new ArrayList<>();
+		for (Object entry : (JSONArray) jo.get("inProgress")) {
+			JSONObject worker = (JSONObject) entry;
+			inProgress.add(new long[]{
+					((Number) worker.get("chunk")).longValue(),
+					((Number) worker.get("nextSeed")).longValue()});
+		}
+		return new Checkpoint(spec,
+				((Number) jo.get("nextChunk")).longValue(),
+				longs((JSONArray) jo.get("doneChunks")),
+				inProgress,
+				longs((JSONArray) jo.get("acceptedSeeds")),
+				((Number) jo.get("checkedWorlds")).longValue());
+	}
+
+	private static List<Long> longs(JSONArray array) {
+		List<Long> values = new ArrayList<>();
+		for (Object value : array) {
+			values.add(((Number) value).longValue());
+		}
+		return values;
+	}
+
+	@SuppressWarnings("unchecked")
+	JSONObject toJson() {
+		JSONObject jo = new JSONObject();
+		jo.put("spec", spec.toJson());
+		jo.put("chunkSize", SearchEngine.CHUNK_SIZE);
+		jo.put("nextChunk", nextChunk);
+		JSONArray done = new JSONArray();
+		done.addAll(doneChunks);
+		jo.put("doneChunks", done);
+		JSONArray workers = new JSONArray();
+		for (long[] chunk : inProgress) {
+			JSONObject worker = new JSONObject();
+			worker.put("chunk", chunk[0]);
+			worker.put("nextSeed", chunk[1]);
+			workers.add(worker);
+		}
+		jo.put("inProgress", workers);
+		JSONArray accepted = new JSONArray();
+		accepted.addAll(acceptedSeeds);
+		jo.put("acceptedSeeds", accepted);
+		jo.put("checkedWorlds", checkedWorlds);
+		return jo;
+	}
+
+	/**
+	 * Writes to a temporary file next to {@code file}, syncs it and moves it
+	 * over {@code file}.
+	 */
+	void save(File file) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		File temp = new File(parent, file.getName() + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(temp);
+				Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8)) {
+			writer.write(toJson().toJSONString());
+			writer.flush();
+			stream.getChannel().force(true);
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
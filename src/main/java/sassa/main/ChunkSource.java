@@ -0,0 +1,29 @@
+package sassa.main;
+
+/**
+ * Hands out the chunks of a sequential search from somewhere other than the
+ * engine's own range, see {@link WorkerNode}. Called from every worker
+ * thread at once.
+ */
+interface ChunkSource {
+
+	/**
+	 * Claims the next chunk.
+	 *
+	 * @param bounds receives the first and last seed of the chunk and its index
+	 * @return {@code false} when there is nothing left to search
+	 */
+	boolean claim(long[] bounds);
+
+	/**
+	 * Reports that every seed of a claimed chunk has been checked.
+	 */
+	void finished(long index);
+
+	/**
+	 * Reports an accepted seed.
+	 *
+	 * @return {@code false} when the search as a whole should stop
+	 */
+	boolean accepted(long seed);
+}
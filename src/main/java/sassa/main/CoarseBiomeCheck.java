@@ -0,0 +1,103 @@
+package sassa.main;
+
+import amidst.mojangapi.minecraftinterface.MinecraftInterface;
+import amidst.mojangapi.minecraftinterface.MinecraftInterfaceException;
+
+/**
+ * The cheap first tier of the biome check: one row of quarter resolution
+ * cells every {@link #STRIDE} rows, a sixteenth of the area.
+ * <p>
+ * The rows are real cells of the area, so an excluded biome in them rejects
+ * the world and, when nothing is excluded, seeing every included biome in
+ * them accepts it, both without the full scan. A world whose rows lack an
+ * included biome may still have it between them. Such worlds are only
+ * rejected once the rows are known to miss included biomes rarely enough:
+ * every {@link #AUDIT_INTERVAL}th seed is scanned in full to measure how
+ * often an included biome that is there was missing from the rows, and the
+ * chance of that losing a world that would have been accepted has to stay
+ * within the tolerance.
+ * <p>
+ * One per worker, nothing here is thread safe.
+ */
+class CoarseBiomeCheck {
+
+	/** Rows are this many quarter resolution cells (64 blocks) apart. */
+	static final int STRIDE = 16;
+	/** One seed in this many is scanned in full to measure the rows. */
+	static final int AUDIT_INTERVAL = 32;
+	/** Included biomes found in audits before the rows are trusted to reject. */
+	static final long MIN_SAMPLES = 256;
+	/** Samples after which the counts are halved, so old data fades out. */
+	static final long DECAY_THRESHOLD = 1 << 14;
+
+	private final double tolerance;
+	private long present;
+	private long missed;
+	private int seedsSinceAudit;
+
+	/**
+	 * @param tolerance the accepted chance of rejecting a world the full scan
+	 *                  would accept, {@code 0} never rejects on the rows alone
+	 */
+	CoarseBiomeCheck(double tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Adds the rows of a square area to the filter.
+	 *
+	 * @return {@code false} if an excluded biome was found
+	 */
+	boolean scan(MinecraftInterface minecraftInterface, int quarterX, int quarterY, int size, BiomeFilter filter) throws MinecraftInterfaceException {
+		for (int row = Math.min(STRIDE, size) / 2; row < size; row += STRIDE) {
+			// Only a sample, the full scan counts these cells towards coverage
+			if (!filter.addSample(minecraftInterface.getBiomeData(quarterX, quarterY + row, size, 1, true))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether the current seed is scanned in full to measure the rows. Never
+	 * when the rows are not allowed to reject.
+	 */
+	boolean audit() {
+		if (tolerance <= 0 || ++seedsSinceAudit < AUDIT_INTERVAL) {
+			return false;
+		}
+		seedsSinceAudit = 0;
+		return true;
+	}
+
+	/**
+	 * Records an audited seed.
+	 *
+	 * @param found   included biomes and sets the full scan found
+	 * @param missing how many of them the rows had missed
+	 */
+	void record(int found, int missing) {
+		present += found;
+		missed += missing;
+		if (present >= DECAY_THRESHOLD) {
+			present /= 2;
+			missed /= 2;
+		}
+	}
+
+	/**
+	 * Whether a world whose rows lack some of its included biomes may be
+	 * rejected without the full scan.
+	 *
+	 * @param criteria the number of included biomes and sets
+	 */
+	boolean canReject(int criteria) {
+		if (tolerance <= 0 || present < MIN_SAMPLES) {
+			return false;
+		}
+		// Smoothed so a clean run of audits can't make the rows look perfect
+		double missRate = (missed + 1.0) / (present + 2.0);
+		// An accepted world has every criterion, losing it takes one miss
+		return 1 - Math.pow(1 - missRate, criteria) <= tolerance;
+	}
+}
@@ -0,0 +1,275 @@
+package sassa.main;
+
+import sassa.util.Util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spreads one sequential search over {@link WorkerNode} processes.
+ * <p>
+ * The range is split into the same chunks a local search uses and each one is
+ * leased to a worker. Workers talk in lines of text and every line gets
+ * exactly one line back:
+ * <pre>
+ * HELLO name        SPEC json
+ * LEASE             CHUNK index first last, WAIT or DONE
+ * FINISHED index    OK or STOP
+ * ACCEPT seed       OK or STOP
+ * HEARTBEAT         OK or STOP
+ * </pre>
+ * A worker that disconnects, or sends nothing for {@link #LEASE_TIMEOUT_MS},
+ * loses its leases and the chunks go to the next worker asking. Accepted
+ * seeds are only reported here, once the search is complete workers are told
+ * to stop.
+ */
+public class Coordinator implements Runnable {
+
+	/** How long a worker may stay silent before its chunks are leased again. */
+	static final long LEASE_TIMEOUT_MS = 60000;
+	/** How long a worker told to WAIT sleeps before asking again. */
+	static final long WAIT_MS = 1000;
+
+	private final SearchSpec spec;
+	private final int port;
+	private final long minSeed;
+	private final long maxSeed;
+	private final long chunkCount;
+	private final int maximumMatchingWorldsCount;
+
+	// Guarded by this
+	private long nextChunk;
+	private final ArrayDeque<Long> lostChunks = new ArrayDeque<>();
+	private final Map<Long, Connection> leases = new HashMap<>();
+	private long finishedChunks;
+	private final Set<Long> acceptedSeeds = new HashSet<>();
+	private boolean stopped;
+
+	static Util util = new Util();
+
+	public Coordinator(SearchSpec spec, int port) {
+		if (spec.isRandomSeeds()) {
+			throw new IllegalArgumentException("Only sequential searches can be distributed, set minSeed and maxSeed");
+		}
+		this.spec = spec;
+		this.port = port;
+		long[] range = SearchEngine.seedRange(spec);
+		this.minSeed = range[0];
+		this.maxSeed = range[1];
+		this.chunkCount = SearchEngine.chunkCount(minSeed, maxSeed);
+		this.maximumMatchingWorldsCount = spec.getMaximumMatchingWorldsCount();
+	}
+
+	/**
+	 * One worker, served on its own thread.
+	 */
+	private class Connection implements Runnable {
+		private final Socket socket;
+		private String name;
+		private volatile long lastSeen = System.currentTimeMillis();
+		// Guarded by the coordinator
+		private boolean released;
+
+		Connection(Socket socket) {
+			this.socket = socket;
+			this.name = socket.getRemoteSocketAddress().toString();
+		}
+
+		public void run() {
+			try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+					BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = in.readLine()) != null) {
+					lastSeen = System.currentTimeMillis();
+					out.write(handle(this, line));
+					out.newLine();
+					out.flush();
+				}
+			} catch (IOException e) {
+				// Treated the same as a clean disconnect
+			} finally {
+				release(this);
+				try {
+					socket.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private String handle(Connection connection, String line) {
+		String[] parts = line.split(" ", 2);
+		switch (parts[0]) {
+			case "HELLO":
+				if (parts.length > 1) {
+					connection.name = parts[1] + " (" + connection.socket.getRemoteSocketAddress() + ")";
+				}
+				util.console("Worker " + connection.name + " joined");
+				return "SPEC " + spec.toJson().toJSONString();
+			case "LEASE":
+				return lease(connection);
+			case "FINISHED":
+			case "ACCEPT":
+				// A worker that sends garbage gets told so, it must not take its connection down
+				Long value = argument(parts);
+				if (value == null) {
+					return "ERROR " + parts[0] + " needs a number";
+				}
+				return parts[0].equals("FINISHED") ? finished(value) : accepted(value);
+			case "HEARTBEAT":
+				return status();
+			default:
+				return "ERROR unknown request " + parts[0];
+		}
+	}
+
+	/**
+	 * The number after a request, {@code null} if it is missing or not a number.
+	 */
+	private static Long argument(String[] parts) {
+		if (parts.length < 2) {
+			return null;
+		}
+		try {
+			return Long.parseLong(parts[1].trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private synchronized boolean isFinished() {
+		return stopped || finishedChunks >= chunkCount || acceptedSeeds.size() >= maximumMatchingWorldsCount;
+	}
+
+	private synchronized String status() {
+		return isFinished() ? "STOP" : "OK";
+	}
+
+	private synchronized String lease(Connection connection) {
+		if (isFinished() || connection.released) {
+			return "DONE";
+		}
+		expireLeases();
+		Long index = lostChunks.poll();
+		if (index == null) {
+			if (nextChunk >= chunkCount) {
+				// Everything is leased, a lease may still be lost though
+				return "WAIT";
+			}
+			index = nextChunk++;
+		}
+		leases.put(index, connection);
+		long[] bounds = SearchEngine.chunkBounds(minSeed, maxSeed, index);
+		return "CHUNK " + index + " " + bounds[0] + " " + bounds[1];
+	}
+
+	private synchronized String finished(long index) {
+		// Whoever finishes a chunk first counts, it may have been leased again in the meantime
+		if (leases.remove(index) != null || lostChunks.remove(index)) {
+			finishedChunks++;
+			if (finishedChunks >= chunkCount) {
+				util.console("All " + chunkCount + " chunks have been searched.");
+			}
+		}
+		return status();
+	}
+
+	private synchronized String accepted(long seed) {
+		if (acceptedSeeds.size() < maximumMatchingWorldsCount && acceptedSeeds.add(seed)) {
+			util.consoleResult(acceptedSeeds.size() + ": " + seed);
+		}
+		return status();
+	}
+
+	/**
+	 * Puts the chunks of a worker that is gone back up for lease.
+	 */
+	private synchronized void release(Connection connection) {
+		if (connection.released) {
+			return;
+		}
+		connection.released = true;
+		int lost = 0;
+		for (Iterator<Map.Entry<Long, Connection>> it = leases.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<Long, Connection> lease = it.next();
+			if (lease.getValue() == connection) {
+				lostChunks.add(lease.getKey());
+				it.remove();
+				lost++;
+			}
+		}
+		if (!isFinished()) {
+			util.console("Worker " + connection.name + " left" + (lost > 0 ? ", leasing its " + lost + " chunk(s) again" : ""));
+		}
+	}
+
+	private synchronized void expireLeases() {
+		long deadline = System.currentTimeMillis() - LEASE_TIMEOUT_MS;
+		List<Connection> silent = new ArrayList<>();
+		for (Connection connection : leases.values()) {
+			if (connection.lastSeen < deadline && !silent.contains(connection)) {
+				silent.add(connection);
+			}
+		}
+		for (Connection connection : silent) {
+			release(connection);
+			try {
+				// Whatever it sends from now on is ignored
+				connection.socket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public synchronized void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Serves workers until every chunk is searched, enough seeds are found or
+	 * {@link #stop()} is called.
+	 */
+	public void run() {
+		try (ServerSocket server = new ServerSocket(port)) {
+			// Wake up regularly to notice lost workers and the end of the search
+			server.setSoTimeout((int) WAIT_MS);
+			util.console("Coordinating seeds " + minSeed + " to " + maxSeed + " in " + chunkCount + " chunk(s) on port " + server.getLocalPort() + "...");
+			while (!isFinished()) {
+				try {
+					Socket socket = server.accept();
+					Thread thread = new Thread(new Connection(socket), "sassa-coordinator-" + socket.getRemoteSocketAddress());
+					thread.setDaemon(true);
+					thread.start();
+				} catch (SocketTimeoutException e) {
+					expireLeases();
+				}
+			}
+			// Give the workers a moment to hear the search is over
+			Thread.sleep(WAIT_MS);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		util.console("Finished Search!");
+		Util.closeResultWriter();
+	}
+}
@@ -0,0 +1,29 @@
+package sassa.main;
+
+/**
+ * The checks a world goes through in {@link Searcher}. The order they run in
+ * is decided at runtime by {@link StagePlanner}.
+ */
+public enum FilterStage {
+	/** Structures around 0,0, widened by 256 blocks to cover where spawn usually is. */
+	ORIGIN_STRUCTURES(false),
+	/** Structures around the spawn point. */
+	SPAWN_STRUCTURES(true),
+	/** Biomes around the spawn point. */
+	BIOMES(true);
+
+	private final boolean needsSpawn;
+
+	FilterStage(boolean needsSpawn) {
+		this.needsSpawn = needsSpawn;
+	}
+
+	/**
+	 * Whether the stage is centred on the spawn point, which has to be looked
+	 * up before it can run. In origin centred searches these are centred on
+	 * 0,0 instead.
+	 */
+	public boolean needsSpawn() {
+		return needsSpawn;
+	}
+}
@@ -0,0 +1,96 @@
+package sassa.main;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import sassa.util.Singleton;
+import sassa.util.Version;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Runs a search without the GUI.
+ * <p>
+ * Usage: {@code HeadlessMain <spec.json> [output file]}. The spec has the shape
+ * of {@code sassa/json/sassa.json}, see {@link SearchSpec#fromJson} for the
+ * extra keys. {@code HeadlessMain --resume <checkpoint> [output file]}
+ * continues a sequential search from its checkpoint instead.
+ * <p>
+ * {@code HeadlessMain --coordinator <port> <spec.json> [output file]} hands a
+ * sequential search out to workers started with
+ * {@code HeadlessMain --worker <host:port> [threads] [minecraft path]}, see
+ * {@link Coordinator}. Everything is printed to stdout and, if an output file is given,
+ * appended to it as well. {@code flushInterval} (milliseconds) and
+ * {@code flushOnAccept} tune how often that file is flushed. The JavaFX
+ * toolkit is never started.
+ */
+public class HeadlessMain {
+
+	public static void main(String... args) throws IOException, ParseException {
+		if (args.length > 0 && args[0].equals("--worker")) {
+			worker(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		boolean coordinator = args.length > 1 && args[0].equals("--coordinator");
+		int port = 0;
+		if (coordinator) {
+			port = Integer.parseInt(args[1]);
+			args = Arrays.copyOfRange(args, 2, args.length);
+		}
+		boolean resume = args.length > 0 && args[0].equals("--resume");
+		if (resume) {
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+		if (args.length < 1 || args.length > 2 || (coordinator && resume)) {
+			System.err.println("Usage: HeadlessMain [--resume] <spec.json | checkpoint> [output file]");
+			System.err.println("       HeadlessMain --coordinator <port> <spec.json> [output file]");
+			System.err.println("       HeadlessMain --worker <host:port> [threads] [minecraft path]");
+			System.exit(2);
+		}
+		Version.registerSupportedVersions();
+		if (args.length == 2) {
+			Singleton.getInstance().setOutputFile(new File(args[1]));
+		}
+
+		if (resume) {
+			new SearchEngine(Checkpoint.load(new File(args[0]))).run();
+			return;
+		}
+
+		JSONObject jo;
+		try (Reader reader = new FileReader(args[0])) {
+			jo = (JSONObject) new JSONParser().parse(reader);
+		}
+		SearchSpec spec = SearchSpec.fromJson(jo);
+		if (jo.containsKey("flushInterval")) {
+			Singleton.getInstance().setOutputFlushInterval(((Number) jo.get("flushInterval")).longValue());
+		}
+		if (jo.containsKey("flushOnAccept")) {
+			Singleton.getInstance().setFlushOnAccept((Boolean) jo.get("flushOnAccept"));
+		}
+
+		// Runs on this thread and returns once the search has finished
+		if (coordinator) {
+			new Coordinator(spec, port).run();
+		} else {
+			new SearchEngine(spec).run();
+		}
+	}
+
+	private static void worker(String... args) throws IOException, ParseException {
+		if (args.length < 1 || args.length > 3 || !args[0].contains(":")) {
+			System.err.println("Usage: HeadlessMain --worker <host:port> [threads] [minecraft path]");
+			System.exit(2);
+		}
+		Version.registerSupportedVersions();
+		String host = args[0].substring(0, args[0].lastIndexOf(':'));
+		int port = Integer.parseInt(args[0].substring(args[0].lastIndexOf(':') + 1));
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+		String minecraftPath = args.length > 2 ? args[2] : null;
+		new WorkerNode(host, port).run(threads, minecraftPath);
+	}
+}
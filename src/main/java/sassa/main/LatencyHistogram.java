@@ -0,0 +1,110 @@
+package sassa.main;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Nanosecond latencies in log-linear buckets, 16 per power of two, so any
+ * value is known to within about 6%. Values of 2^40 ns (18 minutes) and more
+ * land in the last bucket.
+ * <p>
+ * One writer and any number of readers. The writer never locks or CASes, it
+ * owns every bucket and publishes plain increments with {@code lazySet}, so
+ * readers see counts that may be a moment old but are never torn.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 40;
+	static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	static int bucketOf(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) Math.max(0, nanos);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent >= MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * The highest value that falls into a bucket.
+	 */
+	static long highestValueOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		int sub = bucket % SUB_BUCKETS;
+		long lowest = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+		return lowest + (1L << (exponent - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * Records one value. Only ever called by the owning worker.
+	 */
+	void record(long nanos) {
+		int bucket = bucketOf(nanos);
+		counts.lazySet(bucket, counts.get(bucket) + 1);
+		count.lazySet(count.get() + 1);
+		sum.lazySet(sum.get() + nanos);
+		if (nanos > max.get()) {
+			max.lazySet(nanos);
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * The total of every recorded value, in nanoseconds.
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Adds this histogram's buckets to {@code into}, to merge several.
+	 */
+	void addTo(long[] into) {
+		for (int i = 0; i < BUCKETS; i++) {
+			into[i] += counts.get(i);
+		}
+	}
+
+	/**
+	 * The value below which {@code quantile} of the merged counts fall.
+	 */
+	static long valueAt(long[] counts, double quantile) {
+		long total = 0;
+		for (long c : counts) {
+			total += c;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return highestValueOf(i);
+			}
+		}
+		return highestValueOf(counts.length - 1);
+	}
+}
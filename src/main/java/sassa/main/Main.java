@@ -5,6 +5,7 @@ import amidst.parsing.FormatException;
 import org.json.simple.parser.ParseException;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class Main {
 
@@ -13,9 +14,15 @@ public class Main {
 	everything. This one is simply to connect them for building purposes.
 
 	TODO: Better comments so people can understand will do that for v0.6.0
+
+	Passing --headless as the first argument runs a search from a JSON spec without the GUI, see HeadlessMain.
 	*/
 
 	public static void main(String... args) throws IOException, FormatException, MinecraftInterfaceCreationException, ParseException {
+		if (args.length > 0 && args[0].equals("--headless")) {
+			HeadlessMain.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
 		mainApp.main(args);
 	}
 
@@ -0,0 +1,197 @@
+package sassa.main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import sassa.gui.Variables;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the counters of a running search on
+ * {@code http://localhost:<port>/metrics} in the Prometheus text format, so a
+ * scraper can alert on throughput drops and stalls.
+ * <p>
+ * Only bound to the loopback address. Scrapes read the same counters the GUI
+ * shows, the workers never notice them. Seeds per second is the average over
+ * the last {@link #RATE_WINDOW} samples, taken every
+ * {@link #SAMPLE_INTERVAL_MS}, so it does not depend on how often the
+ * scraper comes by.
+ */
+class MetricsServer {
+
+	static final long SAMPLE_INTERVAL_MS = 1000;
+	static final int RATE_WINDOW = 10;
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+	private final SearchEngine engine;
+	private final HttpServer server;
+	private final ScheduledExecutorService sampler;
+
+	// Ring of checked counts and when they were read, guarded by this
+	private final long[] sampleChecked = new long[RATE_WINDOW + 1];
+	private final long[] sampleNanos = new long[RATE_WINDOW + 1];
+	private long samples;
+
+	private MetricsServer(SearchEngine engine, int port) throws IOException {
+		this.engine = engine;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", this::handle);
+		// One thread is plenty for a scraper, and it must not keep the JVM alive
+		server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "sassa-metrics");
+			thread.setDaemon(true);
+			return thread;
+		}));
+		sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "sassa-metrics-sampler");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts serving the metrics of an engine on a local port.
+	 */
+	static MetricsServer start(SearchEngine engine, int port) throws IOException {
+		MetricsServer metrics = new MetricsServer(engine, port);
+		metrics.server.start();
+		metrics.sampler.scheduleAtFixedRate(metrics::sample, 0, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		return metrics;
+	}
+
+	void stop() {
+		sampler.shutdownNow();
+		server.stop(0);
+	}
+
+	private synchronized void sample() {
+		int slot = (int) (samples % sampleChecked.length);
+		sampleChecked[slot] = Variables.checkedWorlds();
+		sampleNanos[slot] = System.nanoTime();
+		samples++;
+	}
+
+	private synchronized double seedsPerSecond() {
+		if (samples < 2) {
+			return 0;
+		}
+		int newest = (int) ((samples - 1) % sampleChecked.length);
+		int oldest = samples > sampleChecked.length ? (int) (samples % sampleChecked.length) : 0;
+		long nanos = sampleNanos[newest] - sampleNanos[oldest];
+		return nanos <= 0 ? 0 : (sampleChecked[newest] - sampleChecked[oldest]) * 1e9 / nanos;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String method = exchange.getRequestMethod();
+			if (!method.equals("GET") && !method.equals("HEAD")) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body = format().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			if (method.equals("HEAD")) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * The whole exposition, built fresh for every scrape.
+	 */
+	String format() {
+		StringBuilder sb = new StringBuilder();
+		metric(sb, "sassa_seeds_checked_total", "counter", "Worlds checked so far.");
+		sample(sb, "sassa_seeds_checked_total", "", Variables.checkedWorlds());
+		metric(sb, "sassa_seeds_accepted_total", "counter", "Worlds accepted so far.");
+		sample(sb, "sassa_seeds_accepted_total", "", Variables.acceptedWorlds());
+		metric(sb, "sassa_seeds_rejected_since_accept", "gauge", "Worlds checked since the last one was accepted.");
+		sample(sb, "sassa_seeds_rejected_since_accept", "", Variables.worldsSinceAccepted());
+		metric(sb, "sassa_seeds_per_second", "gauge", "Worlds checked per second over the last " + RATE_WINDOW + " seconds.");
+		sample(sb, "sassa_seeds_per_second", "", seedsPerSecond());
+		metric(sb, "sassa_running", "gauge", "1 while the search runs, 0 once it stopped.");
+		sample(sb, "sassa_running", "", engine.isRunning() ? 1 : 0);
+		metric(sb, "sassa_paused", "gauge", "1 while the search is paused.");
+		sample(sb, "sassa_paused", "", engine.isPaused() ? 1 : 0);
+
+		StageTimings timings = engine.getStageTimings();
+		metric(sb, "sassa_worker_seeds_checked_total", "counter", "Worlds checked by each worker.");
+		for (int i = 0; i < timings.getWorkerCount(); i++) {
+			sample(sb, "sassa_worker_seeds_checked_total", worker(i), timings.count(i, StageTimings.WORLD_CREATION));
+		}
+		if (!engine.getSpec().isRandomSeeds()) {
+			long[][] progress = engine.workerProgress();
+			metric(sb, "sassa_worker_chunk", "gauge", "Chunk each worker is searching, -1 between chunks.");
+			for (int i = 0; i < progress.length; i++) {
+				sample(sb, "sassa_worker_chunk", worker(i), progress[i][0]);
+			}
+			metric(sb, "sassa_worker_next_seed", "gauge", "Next seed each worker checks in its chunk, its byte offset for a seed file or its index for a permutation.");
+			for (int i = 0; i < progress.length; i++) {
+				sample(sb, "sassa_worker_next_seed", worker(i), progress[i][1]);
+			}
+		}
+
+		metric(sb, "sassa_stage_seconds", "summary", "Time spent per seed in each stage.");
+		for (int i = 0; i < StageTimings.COUNT; i++) {
+			String stage = "stage=\"" + stage(i) + "\"";
+			long[] counts = timings.merged(i);
+			for (double quantile : QUANTILES) {
+				sample(sb, "sassa_stage_seconds", stage + ",quantile=\"" + quantile + "\"",
+						LatencyHistogram.valueAt(counts, quantile) / 1e9);
+			}
+			sample(sb, "sassa_stage_seconds_sum", stage, timings.sum(i) / 1e9);
+			sample(sb, "sassa_stage_seconds_count", stage, timings.count(i));
+		}
+		metric(sb, "sassa_stage_seconds_max", "gauge", "Longest time a seed spent in each stage.");
+		for (int i = 0; i < StageTimings.COUNT; i++) {
+			sample(sb, "sassa_stage_seconds_max", "stage=\"" + stage(i) + "\"", timings.max(i) / 1e9);
+		}
+		return sb.toString();
+	}
+
+	private static String stage(int timing) {
+		return StageTimings.name(timing).toLowerCase(Locale.ROOT).replace(' ', '_');
+	}
+
+	private static String worker(int worker) {
+		return "worker=\"" + worker + "\"";
+	}
+
+	private static void metric(StringBuilder sb, String name, String type, String help) {
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void sample(StringBuilder sb, String name, String labels, long value) {
+		sb.append(name);
+		if (!labels.isEmpty()) {
+			sb.append('{').append(labels).append('}');
+		}
+		sb.append(' ').append(value).append('\n');
+	}
+
+	private static void sample(StringBuilder sb, String name, String labels, double value) {
+		sb.append(name);
+		if (!labels.isEmpty()) {
+			sb.append('{').append(labels).append('}');
+		}
+		sb.append(' ').append(value).append('\n');
+	}
+}
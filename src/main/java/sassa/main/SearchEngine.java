@@ -0,0 +1,594 @@
+package sassa.main;
+
+import amidst.mojangapi.minecraftinterface.MinecraftInterfaceCreationException;
+import amidst.mojangapi.world.biome.Biome;
+import amidst.parsing.FormatException;
+import sassa.gui.Variables;
+import sassa.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runs one search on a pool of {@link Searcher} workers.
+ * <p>
+ * In sequential mode the range {@code [minSeed, maxSeed]} is handed out in
+ * chunks of {@link #CHUNK_SIZE} seeds, so every seed is checked exactly once
+ * no matter how many workers there are. In random mode every worker draws
+ * its own seeds. The accepted count is shared, once it reaches
+ * {@code maximumMatchingWorldsCount} all workers stop.
+ * <p>
+ * A seed file is searched the same way, only its chunks are bytes of the file,
+ * and so is a {@link SeedPermutation}, whose chunks are runs of its indices.
+ * <p>
+ * A sequential search with a checkpoint file saves its progress there every
+ * {@link #CHECKPOINT_INTERVAL_MS} and when it ends, and can be resumed from
+ * it without checking finished seeds again, see {@link Checkpoint}.
+ */
+public class SearchEngine implements Runnable {
+
+    /**
+     * The number of sequential seeds a worker claims at once. Big enough that
+     * the workers rarely touch the shared cursor, small enough that a stopped
+     * search does not leave large unchecked holes behind.
+     */
+    static final int CHUNK_SIZE = 1024;
+
+    /** How often a sequential search saves its checkpoint. */
+    static final long CHECKPOINT_INTERVAL_MS = 30000;
+
+    /** Marks a worker that holds no chunk in {@link #workerChunks}. */
+    private static final long IDLE = -1;
+
+    private final SearchSpec spec;
+    private final int maximumMatchingWorldsCount;
+    private final long minSeed;
+    private final long maxSeed;
+    private final int threadCount;
+    private final boolean sieving;
+
+    /** Index of the next sequential chunk to hand out. */
+    private final AtomicLong nextChunk = new AtomicLong();
+    private final AtomicInteger acceptedCount = new AtomicInteger();
+    // Guarded by this
+    private final List<Long> acceptedSeeds = new ArrayList<>();
+    /** The same seeds as acceptedSeeds, to look them up without a scan. */
+    private final Set<Long> acceptedSeedSet = new HashSet<>();
+
+    // Progress of a sequential search. Chunk indices only change under
+    // progressLock, the next seed of a worker changes after every seed.
+    private final Object progressLock = new Object();
+    private final long[] workerChunks;
+    private final AtomicLongArray workerNextSeeds;
+    /** Every chunk below this one is finished. */
+    private long finishedBelow;
+    /** Finished chunks above {@link #finishedBelow}. */
+    private final TreeSet<Long> finishedAbove = new TreeSet<>();
+    /** Chunks left unfinished by the run a search was resumed from, as chunk and next seed. */
+    private final Queue<long[]> resumedChunks = new ConcurrentLinkedQueue<>();
+    /** Chunks the resumed run finished or had started, never handed out fresh. */
+    private final Set<Long> skippedChunks = new HashSet<>();
+    private final Checkpoint resumedFrom;
+    private final StageTimings stageTimings;
+    /** The seeds to check when the spec has a seed file, opened when the search starts. */
+    private SeedFile seedFile;
+    /** Where chunks come from instead of the local range, {@code null} for the local range. */
+    private ChunkSource chunkSource;
+
+    private volatile boolean running = true;
+    private volatile boolean paused = false;
+
+    /** Called on the engine thread once every worker has finished. */
+    private Runnable onFinished = () -> {};
+
+    static Util util = new Util();
+
+    public SearchEngine(SearchSpec spec) {
+        this(spec, null);
+    }
+
+    /**
+     * Continues the sequential search a checkpoint was saved from.
+     */
+    public SearchEngine(Checkpoint checkpoint) {
+        this(checkpoint.getSpec(), checkpoint);
+    }
+
+    private SearchEngine(SearchSpec spec, Checkpoint checkpoint) {
+        this.spec = spec;
+        this.resumedFrom = checkpoint;
+        this.maximumMatchingWorldsCount = spec.getMaximumMatchingWorldsCount();
+        this.threadCount = Math.max(1, spec.getThreadCount());
+        this.sieving = isSieving(spec);
+        long[] range = seedRange(spec);
+        this.minSeed = range[0];
+        this.maxSeed = range[1];
+        this.stageTimings = new StageTimings(threadCount);
+        this.workerChunks = new long[threadCount];
+        Arrays.fill(workerChunks, IDLE);
+        this.workerNextSeeds = new AtomicLongArray(threadCount);
+        if (checkpoint != null) {
+            nextChunk.set(checkpoint.getNextChunk());
+            finishedBelow = checkpoint.getNextChunk();
+            finishedAbove.addAll(checkpoint.getDoneChunks());
+            skippedChunks.addAll(checkpoint.getDoneChunks());
+            for (long[] chunk : checkpoint.getInProgress()) {
+                skippedChunks.add(chunk[0]);
+                resumedChunks.add(chunk.clone());
+            }
+            acceptedSeeds.addAll(checkpoint.getAcceptedSeeds());
+            acceptedSeedSet.addAll(acceptedSeeds);
+            acceptedCount.set(acceptedSeeds.size());
+        }
+    }
+
+    /**
+     * Whether a search with this spec sweeps structure seeds, see {@link #isSieving()}.
+     * The seed range has to overlap the 48 bit structure seeds.
+     */
+    static boolean isSieving(SearchSpec spec) {
+        return spec.isStructureSieve() && !spec.isRandomSeeds() && !spec.isBedrock() && spec.getSeedFile() == null && !spec.isPermuted()
+                && isStructureSeedRange(spec)
+                && new StructureSieve(spec.getStructures(), spec.getMinecraftVersion(), spec.getSearchRadius()).canSieve();
+    }
+
+    /**
+     * Whether the seed range of a spec overlaps the structure seeds, 0 to 2^48-1.
+     */
+    private static boolean isStructureSeedRange(SearchSpec spec) {
+        return spec.getMinSeed() <= spec.getMaxSeed() && spec.getMaxSeed() >= 0 && spec.getMinSeed() <= StructureSieve.STRUCTURE_SEED_MASK;
+    }
+
+    /**
+     * The first and last seed of the sequential range of a spec. For a seed
+     * file it is the first and last byte of the file instead, for a
+     * permutation its first and last index.
+     */
+    static long[] seedRange(SearchSpec spec) {
+        if (spec.isPermuted()) {
+            // -1 is the last of all 2^64 indices, the range is treated as unsigned
+            return new long[]{0, spec.isBedrock() ? SeedPermutation.BEDROCK_LAST_INDEX : -1};
+        }
+        if (spec.getSeedFile() != null) {
+            return new long[]{0, Math.max(0, spec.getSeedFile().length() - 1)};
+        }
+        if (isSieving(spec)) {
+            // The range is one of structure seeds, which only have 48 bits
+            return new long[]{Math.max(0, spec.getMinSeed()), Math.min(StructureSieve.STRUCTURE_SEED_MASK, spec.getMaxSeed())};
+        }
+        return new long[]{spec.getMinSeed(), spec.getMaxSeed()};
+    }
+
+    /**
+     * The number of chunks {@code [minSeed, maxSeed]} is split into.
+     */
+    static long chunkCount(long minSeed, long maxSeed) {
+        // Unsigned so a range wider than Long.MAX_VALUE still works
+        return Long.divideUnsigned(maxSeed - minSeed, CHUNK_SIZE) + 1;
+    }
+
+    /**
+     * The first and last seed of a chunk.
+     */
+    static long[] chunkBounds(long minSeed, long maxSeed, long index) {
+        long lastOffset = index * CHUNK_SIZE + CHUNK_SIZE - 1;
+        if (Long.compareUnsigned(lastOffset, maxSeed - minSeed) > 0) {
+            lastOffset = maxSeed - minSeed;
+        }
+        return new long[]{minSeed + index * CHUNK_SIZE, minSeed + lastOffset};
+    }
+
+    public void setOnFinished(Runnable onFinished) {
+        this.onFinished = onFinished;
+    }
+
+    /**
+     * Takes the sequential chunks from {@code chunkSource} instead of the
+     * spec's range. Set before running.
+     */
+    void setChunkSource(ChunkSource chunkSource) {
+        this.chunkSource = chunkSource;
+    }
+
+    /**
+     * How long each stage takes, per worker.
+     */
+    public StageTimings getStageTimings() {
+        return stageTimings;
+    }
+
+    SearchSpec getSpec() {
+        return spec;
+    }
+
+    SeedFile getSeedFile() {
+        return seedFile;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Whether the sequential range is a range of structure seeds that get
+     * sieved before being expanded, see {@link StructureSieve}.
+     */
+    boolean isSieving() {
+        return sieving;
+    }
+
+    /**
+     * Claims the next chunk of the sequential range for a worker. Chunks left
+     * unfinished by a resumed search come first. With a chunk source the
+     * chunks come from there instead.
+     *
+     * @param bounds receives the first and last seed of the chunk and its index
+     * @return {@code false} when the range is exhausted or the search stopped
+     */
+    boolean claimChunk(int worker, long[] bounds) {
+        if (!running) {
+            return false;
+        }
+        if (chunkSource != null) {
+            if (!chunkSource.claim(bounds)) {
+                return false;
+            }
+        } else {
+            long[] resumed = resumedChunks.poll();
+            long index;
+            if (resumed != null) {
+                index = resumed[0];
+            } else {
+                long chunkCount = chunkCount(minSeed, maxSeed);
+                do {
+                    index = nextChunk.getAndIncrement();
+                    if (index >= chunkCount) {
+                        return false;
+                    }
+                } while (skippedChunks.contains(index));
+            }
+            long[] chunk = chunkBounds(minSeed, maxSeed, index);
+            bounds[0] = resumed != null ? resumed[1] : chunk[0];
+            bounds[1] = chunk[1];
+            bounds[2] = index;
+        }
+        synchronized (progressLock) {
+            workerChunks[worker] = bounds[2];
+            workerNextSeeds.set(worker, bounds[0]);
+        }
+        return true;
+    }
+
+    /**
+     * Records that a worker finished every seed of its chunk before {@code nextSeed}.
+     */
+    void seedDone(int worker, long nextSeed) {
+        workerNextSeeds.lazySet(worker, nextSeed);
+    }
+
+    /**
+     * Records that a worker finished its whole chunk.
+     */
+    void chunkDone(int worker, long index) {
+        if (chunkSource != null) {
+            chunkSource.finished(index);
+        }
+        synchronized (progressLock) {
+            workerChunks[worker] = IDLE;
+            if (chunkSource != null) {
+                return;
+            }
+            if (index == finishedBelow) {
+                finishedBelow++;
+                while (finishedAbove.remove(finishedBelow)) {
+                    finishedBelow++;
+                }
+            } else {
+                finishedAbove.add(index);
+            }
+        }
+    }
+
+    /**
+     * The chunk every worker is searching, {@code -1} for none, and the next
+     * seed it checks there.
+     */
+    long[][] workerProgress() {
+        synchronized (progressLock) {
+            long[][] progress = new long[workerChunks.length][];
+            for (int i = 0; i < workerChunks.length; i++) {
+                progress[i] = new long[]{workerChunks[i], workerNextSeeds.get(i)};
+            }
+            return progress;
+        }
+    }
+
+    /**
+     * A snapshot of the progress. Chunks claimed but not yet reported are
+     * left out, resuming checks them again.
+     */
+    Checkpoint checkpoint() {
+        List<Long> accepted;
+        synchronized (this) {
+            accepted = new ArrayList<>(acceptedSeeds);
+        }
+        synchronized (progressLock) {
+            List<long[]> inProgress = new ArrayList<>();
+            for (int i = 0; i < workerChunks.length; i++) {
+                if (workerChunks[i] != IDLE) {
+                    inProgress.add(new long[]{workerChunks[i], workerNextSeeds.get(i)});
+                }
+            }
+            for (long[] chunk : resumedChunks) {
+                inProgress.add(chunk.clone());
+            }
+            return new Checkpoint(spec, finishedBelow, new ArrayList<>(finishedAbove), inProgress,
+                    accepted, Variables.checkedWorlds());
+        }
+    }
+
+    private void saveCheckpoint() {
+        File file = spec.getCheckpointFile();
+        try {
+            checkpoint().save(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            util.console("Could not save the checkpoint to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isCheckpointing() {
+        return !spec.isRandomSeeds() && spec.getCheckpointFile() != null && chunkSource == null;
+    }
+
+    /**
+     * Records an accepted seed. Synchronized so the numbering in the console
+     * matches the order seeds are reported in.
+     *
+     * @param matchDistance how far from the centre the included biomes were
+     *                      all found, in blocks, {@code -1} if unknown
+     * @param regions       the largest patch of every region criterion, empty
+     *                      without any
+     */
+    synchronized void acceptWorld(long seed, int matchDistance, String regions) {
+        // A resumed search checks the seeds it was in the middle of again
+        if (acceptedCount.get() >= maximumMatchingWorldsCount || acceptedSeedSet.contains(seed)) {
+            return;
+        }
+        acceptedSeeds.add(seed);
+        acceptedSeedSet.add(seed);
+        int accepted = acceptedCount.incrementAndGet();
+        String biomes = matchDistance < 0 ? "" : ", biomes within " + matchDistance + " blocks";
+        if (!regions.isEmpty()) {
+            biomes += ", " + regions;
+        }
+        util.consoleResult(accepted + ": " + seed + " (rejected " + Variables.worldsSinceAccepted() + biomes + ")");
+        Variables.acceptWorld();
+        if (accepted >= maximumMatchingWorldsCount || (chunkSource != null && !chunkSource.accepted(seed))) {
+            stop();
+        }
+    }
+
+    private boolean printSearchLists() {
+        if (!spec.hasCriteria()) {
+            util.console("\nNo biomes/structures are selected or rejected!\nPlease select some before starting!\nSearch has been cancelled.\nRecommend you clear the console!\n");
+            return false;
+        }
+
+        if (spec.getBiomes().length > 0 || !spec.getBiomeSets().isEmpty()) {
+            util.console("Included Biomes:");
+            for (Biome biome : spec.getBiomes()) {
+                util.console("\t" + biome.getName() + measures(biome.getName(), true));
+            }
+            for (Biome biome : spec.getBiomeSets().keySet()) {
+                util.console("\t" + biome.getName());
+            }
+            for (String set : measured(spec.getBiomeCoverage(), spec.getBiomeRegions())) {
+                if (spec.getBiomeSets().containsValue(set)) {
+                    util.console("\t" + set + measures(set, true));
+                }
+            }
+        }
+        if (spec.getRejectedBiomes().length > 0 || !spec.getRejectedBiomeSets().isEmpty()) {
+            util.console("Excluded Biomes:");
+            for (Biome biome : spec.getRejectedBiomes()) {
+                util.console("\t" + biome.getName() + measures(biome.getName(), false));
+            }
+            for (Biome biome : spec.getRejectedBiomeSets().keySet()) {
+                util.console("\t" + biome.getName());
+            }
+            for (String set : measured(spec.getRejectedBiomeCoverage(), spec.getRejectedBiomeRegions())) {
+                if (spec.getRejectedBiomeSets().containsValue(set)) {
+                    util.console("\t" + set + measures(set, false));
+                }
+            }
+        }
+        if (spec.getStructures().length > 0) {
+            util.console("Included Structures:");
+            for (StructureSearcher.Type structure : spec.getStructures()) {
+                util.console("\t" + structure + amount(spec.getStructureAmounts(), structure, "at least"));
+            }
+        }
+        if (spec.getRejectedStructures().length > 0) {
+            util.console("Excluded Structures:");
+            for (StructureSearcher.Type structure : spec.getRejectedStructures()) {
+                util.console("\t" + structure + amount(spec.getRejectedStructureAmounts(), structure, "fewer than"));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Serves the metrics on the spec's port, if it has one. A search whose
+     * port is taken still runs, only without metrics.
+     */
+    private MetricsServer startMetrics() {
+        if (spec.getMetricsPort() <= 0) {
+            return null;
+        }
+        try {
+            MetricsServer metrics = MetricsServer.start(this, spec.getMetricsPort());
+            util.console("Serving metrics on http://localhost:" + spec.getMetricsPort() + "/metrics");
+            return metrics;
+        } catch (IOException e) {
+            e.printStackTrace();
+            util.console("Could not serve metrics on port " + spec.getMetricsPort() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String amount(Map<StructureSearcher.Type, Integer> amounts, StructureSearcher.Type structure, String bound) {
+        Integer amount = amounts.get(structure);
+        return amount == null ? "" : " (" + bound + " " + amount + ")";
+    }
+
+    /**
+     * The names of the biomes and sets with a coverage or region criterion, sorted.
+     */
+    private static Set<String> measured(Map<String, Double> coverage, Map<String, Integer> regions) {
+        Set<String> names = new TreeSet<>(coverage.keySet());
+        names.addAll(regions.keySet());
+        return names;
+    }
+
+    /**
+     * The coverage and region criteria of an included or excluded biome or
+     * set, for the search lists.
+     */
+    private String measures(String name, boolean included) {
+        Double percent = (included ? spec.getBiomeCoverage() : spec.getRejectedBiomeCoverage()).get(name);
+        Integer region = (included ? spec.getBiomeRegions() : spec.getRejectedBiomeRegions()).get(name);
+        String bound = included ? "at least" : "below";
+        if (percent == null && region == null) {
+            return "";
+        }
+        String coverage = percent == null ? "" : bound + " " + percent + "% of the area";
+        String patch = region == null ? "" : "largest patch " + bound + " " + region + " cells";
+        return " (" + coverage + (percent != null && region != null ? ", " : "") + patch + ")";
+    }
+
+    void search() throws IOException, FormatException, MinecraftInterfaceCreationException, InterruptedException {
+        Variables.reset();
+        if (!printSearchLists()) {
+            return;
+        }
+        if (resumedFrom != null) {
+            Variables.restore(resumedFrom.getCheckedWorlds(), acceptedSeeds.size());
+            util.console("Resuming from " + spec.getCheckpointFile() + ", seeds accepted so far:");
+            for (int i = 0; i < acceptedSeeds.size(); i++) {
+                util.console((i + 1) + ": " + acceptedSeeds.get(i));
+            }
+            if (acceptedCount.get() >= maximumMatchingWorldsCount) {
+                util.console("All " + maximumMatchingWorldsCount + " seeds have already been found.");
+                stop();
+            }
+        }
+
+        if (spec.getSeedFile() != null) {
+            seedFile = new SeedFile(spec.getSeedFile(), spec.isBinarySeedFile());
+            util.console("Reading seeds from " + spec.getSeedFile() + " (" + seedFile.size() + " bytes)...");
+        }
+
+        // Every worker gets its own MinecraftInterface, amidst serialises
+        // calls on a single interface so sharing one would not scale.
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount && running; i++) {
+            Searcher searcher = new Searcher(this, i);
+            Thread thread = new Thread(searcher, "sassa-searcher-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        if (spec.isPermuted() && resumedFrom == null) {
+            util.console("Random seeds from permutation key " + spec.getPermutationKey() + ", the same key checks the same seeds.");
+        }
+        if (spec.isStructureSieve() && !sieving) {
+            if (!spec.isRandomSeeds() && !spec.isPermuted() && spec.getSeedFile() == null && !spec.isBedrock() && !isStructureSeedRange(spec)) {
+                util.console("The seed range holds no structure seeds (0 to " + StructureSieve.STRUCTURE_SEED_MASK + "), searching every seed instead.");
+            } else {
+                util.console("None of the included structures can be sieved, searching every seed instead.");
+            }
+        } else if (sieving) {
+            if (spec.getMinSeed() < minSeed || spec.getMaxSeed() > maxSeed) {
+                util.console("Only structure seeds are sieved, the seed range is cut to " + minSeed + " to " + maxSeed + ".");
+            }
+            util.console("Sieving structure seeds " + minSeed + " to " + maxSeed + "...");
+        }
+        util.console("Searching with " + threads.size() + " thread(s)...");
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                thread.join(CHECKPOINT_INTERVAL_MS);
+                if (thread.isAlive() && isCheckpointing()) {
+                    saveCheckpoint();
+                }
+            }
+        }
+        if (isCheckpointing()) {
+            saveCheckpoint();
+            util.console("Progress saved to " + spec.getCheckpointFile());
+        }
+        if (spec.isPermuted()) {
+            // Repeated at the end, the first one is long gone from the console by now
+            util.console("Searched random seeds from permutation key " + spec.getPermutationKey() + ".");
+        }
+    }
+
+    public void run() {
+        MetricsServer metrics = startMetrics();
+        long unknownBiomeCodes = BiomeFilter.unknownBiomeCodes();
+        try {
+            search();
+        } catch (InterruptedException | IOException | FormatException | MinecraftInterfaceCreationException e) {
+            e.printStackTrace();
+        }
+        running = false;
+        if (metrics != null) {
+            metrics.stop();
+        }
+
+        if (Variables.checkedWorlds() > 0) {
+            util.console("Stage timings:\n" + stageTimings.format());
+            if (spec.getStatsFile() != null) {
+                try {
+                    stageTimings.dump(spec.getStatsFile());
+                    util.console("Stage timings saved to " + spec.getStatsFile());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        unknownBiomeCodes = BiomeFilter.unknownBiomeCodes() - unknownBiomeCodes;
+        if (unknownBiomeCodes > 0) {
+            util.console(unknownBiomeCodes + " biome codes amidst does not know were skipped.");
+        }
+        util.console("Finished Search!");
+        Util.closeResultWriter();
+        onFinished.run();
+    }
+}
@@ -0,0 +1,724 @@
+package sassa.main;
+
+import amidst.mojangapi.world.WorldType;
+import amidst.mojangapi.world.biome.Biome;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ParseException;
+import sassa.util.Singleton;
+import sassa.util.Util;
+import sassa.util.Version;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a {@link SearchEngine} needs to know about a search.
+ * <p>
+ * The GUI fills this in from its controls before starting, the headless mode
+ * reads it from a JSON file in the shape of {@code sassa/json/sassa.json}, so
+ * nothing in the search itself touches JavaFX.
+ */
+public class SearchSpec {
+
+    private String minecraftVersion = Version.V1_15_2;
+    private String minecraftPath;
+    private WorldType worldType = WorldType.DEFAULT;
+    private int searchRadius = 512;
+    private int maximumMatchingWorldsCount = 10;
+    private long minSeed;
+    private long maxSeed;
+    private boolean randomSeeds = true;
+    private boolean bedrock;
+    private boolean structureSieve;
+    private boolean originCentred;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private File checkpointFile;
+    private File statsFile;
+    private int metricsPort;
+    private File seedFile;
+    private boolean binarySeedFile;
+    private boolean permuted;
+    private long permutationKey;
+    private boolean coarseBiomes;
+    private double coarseBiomeTolerance;
+
+    private Biome[] biomes = {};
+    private Biome[] rejectedBiomes = {};
+    private HashMap<Biome, String> biomeSets = new HashMap<>();
+    private HashMap<Biome, String> rejectedBiomeSets = new HashMap<>();
+    /** Percentages of the area included biomes or sets, by name, have to cover. */
+    private HashMap<String, Double> biomeCoverage = new HashMap<>();
+    /** Percentages of the area excluded biomes or sets, by name, have to stay below. */
+    private HashMap<String, Double> rejectedBiomeCoverage = new HashMap<>();
+    /** Cells the largest patch of included biomes or sets, by name, needs. */
+    private HashMap<String, Integer> biomeRegions = new HashMap<>();
+    /** Cells the largest patch of excluded biomes or sets, by name, has to stay below. */
+    private HashMap<String, Integer> rejectedBiomeRegions = new HashMap<>();
+    private StructureSearcher.Type[] structures = {};
+    private StructureSearcher.Type[] rejectedStructures = {};
+    /** How many of each included structure type are needed, one for those missing. */
+    private HashMap<StructureSearcher.Type, Integer> structureAmounts = new HashMap<>();
+    /** How many of each excluded structure type reject a world, one for those missing. */
+    private HashMap<StructureSearcher.Type, Integer> rejectedStructureAmounts = new HashMap<>();
+
+    /**
+     * Reads a search spec. Apart from the keys in {@code sassa.json} the
+     * following optional keys are understood: {@code version}, {@code mcPath},
+     * {@code worldType}, {@code bedrock}, {@code threads},
+     * {@code minSeed}/{@code maxSeed} (both present means a sequential search),
+     * {@code seedFile} and {@code seedFormat} ({@code text} or {@code binary},
+     * checks the seeds listed in the file instead, see {@link SeedFile}),
+     * {@code permutationKey} (random seeds without repeats, see {@link SeedPermutation}),
+     * {@code coarseBiomeTolerance} (the share of matches the sparse row check
+     * may lose, see {@link CoarseBiomeCheck}),
+     * {@code structureSieve}, {@code originCentred}, {@code checkpoint}
+     * (where a sequential search saves its progress, see {@link Checkpoint})
+     * {@code statsFile} (where the stage timings go at the end) and
+     * {@code metricsPort} (serves the counters on localhost, see {@link MetricsServer}).
+     * <p>
+     * The search area is a square, so {@code width} and {@code height} become
+     * a radius of half the larger of the two. The {@code size} modifier of a
+     * biome or biome set is the percentage of that area it has to cover
+     * (included) or stay below (excluded). The {@code region} modifier is the
+     * number of quarter resolution cells (4 by 4 blocks) the largest connected
+     * patch of it has to reach (included) or stay below (excluded), see
+     * {@link BiomeRegions}. The {@code amount} modifier of a structure is how
+     * many of it the area needs (included) or has to stay below (excluded).
+     * <p>
+     * The version is also made the selected version on the {@link Singleton},
+     * biome sets are resolved against it.
+     */
+    public static SearchSpec fromJson(JSONObject jo) throws IOException, ParseException {
+        SearchSpec spec = new SearchSpec();
+        Util util = new Util();
+
+        if (jo.containsKey("version")) spec.minecraftVersion = (String) jo.get("version");
+        Singleton.getInstance().setMinecraftVersion(spec.minecraftVersion);
+        if (jo.containsKey("mcPath")) spec.minecraftPath = (String) jo.get("mcPath");
+        if (jo.containsKey("worldType")) spec.worldType = util.getWorldType(((String) jo.get("worldType")).toUpperCase());
+        if (jo.containsKey("bedrock")) spec.bedrock = (Boolean) jo.get("bedrock");
+        if (jo.containsKey("structureSieve")) spec.structureSieve = (Boolean) jo.get("structureSieve");
+        if (jo.containsKey("originCentred")) spec.originCentred = (Boolean) jo.get("originCentred");
+        if (jo.containsKey("checkpoint")) spec.checkpointFile = new File((String) jo.get("checkpoint"));
+        if (jo.containsKey("statsFile")) spec.statsFile = new File((String) jo.get("statsFile"));
+        if (jo.containsKey("metricsPort")) spec.metricsPort = ((Number) jo.get("metricsPort")).intValue();
+        if (jo.containsKey("threads")) spec.threadCount = ((Number) jo.get("threads")).intValue();
+        if (jo.containsKey("maxSeeds")) spec.maximumMatchingWorldsCount = ((Number) jo.get("maxSeeds")).intValue();
+        if (jo.containsKey("width") || jo.containsKey("height")) {
+            long width = jo.containsKey("width") ? ((Number) jo.get("width")).longValue() : 0;
+            long height = jo.containsKey("height") ? ((Number) jo.get("height")).longValue() : 0;
+            spec.searchRadius = (int) (Math.max(width, height) / 2);
+        }
+        if (jo.containsKey("minSeed") && jo.containsKey("maxSeed")) {
+            spec.randomSeeds = false;
+            spec.minSeed = ((Number) jo.get("minSeed")).longValue();
+            spec.maxSeed = ((Number) jo.get("maxSeed")).longValue();
+        }
+        if (jo.containsKey("seedFile")) {
+            spec.randomSeeds = false;
+            spec.seedFile = new File((String) jo.get("seedFile"));
+            spec.binarySeedFile = "binary".equalsIgnoreCase((String) jo.get("seedFormat"));
+        }
+        if (jo.containsKey("coarseBiomeTolerance")) {
+            spec.coarseBiomes = true;
+            spec.coarseBiomeTolerance = ((Number) jo.get("coarseBiomeTolerance")).doubleValue();
+        }
+        if (jo.containsKey("permutationKey")) {
+            spec.randomSeeds = false;
+            spec.permuted = true;
+            spec.permutationKey = ((Number) jo.get("permutationKey")).longValue();
+        }
+
+        JSONObject search = (JSONObject) jo.get("search");
+        if (search != null) {
+            JSONObject include = (JSONObject) search.get("include");
+            JSONObject exclude = (JSONObject) search.get("exclude");
+            @SuppressWarnings("unchecked")
+            HashMap<String, String> sets = (HashMap<String, String>) util.createSearchLists("getBiomeSets");
+            if (include != null) {
+                spec.biomes = biomesFromJson(names(include, "biomes"));
+                spec.biomeSets = biomeSetsFromJson(names(include, "biomeSets"), sets);
+                spec.structures = structuresFromJson(names(include, "structures"));
+                sizesFromJson(include, "biomes", spec.biomeCoverage);
+                sizesFromJson(include, "biomeSets", spec.biomeCoverage);
+                regionsFromJson(include, "biomes", spec.biomeRegions);
+                regionsFromJson(include, "biomeSets", spec.biomeRegions);
+                amountsFromJson(include, spec.structureAmounts);
+            }
+            if (exclude != null) {
+                spec.rejectedBiomes = biomesFromJson(names(exclude, "biomes"));
+                spec.rejectedBiomeSets = biomeSetsFromJson(names(exclude, "biomeSets"), sets);
+                spec.rejectedStructures = structuresFromJson(names(exclude, "structures"));
+                sizesFromJson(exclude, "biomes", spec.rejectedBiomeCoverage);
+                sizesFromJson(exclude, "biomeSets", spec.rejectedBiomeCoverage);
+                regionsFromJson(exclude, "biomes", spec.rejectedBiomeRegions);
+                regionsFromJson(exclude, "biomeSets", spec.rejectedBiomeRegions);
+                amountsFromJson(exclude, spec.rejectedStructureAmounts);
+            }
+        }
+        if (spec.isSeedRangeInverted()) {
+            throw new IllegalArgumentException("minSeed " + spec.minSeed + " is above maxSeed " + spec.maxSeed);
+        }
+        return spec;
+    }
+
+    /**
+     * Writes the spec in the shape {@link #fromJson} reads. The checkpoint
+     * file is left out, it is where the spec ends up.
+     */
+    @SuppressWarnings("unchecked")
+    public JSONObject toJson() {
+        JSONObject jo = new JSONObject();
+        jo.put("version", minecraftVersion);
+        if (minecraftPath != null) jo.put("mcPath", minecraftPath);
+        jo.put("worldType", worldTypeName(worldType));
+        jo.put("bedrock", bedrock);
+        jo.put("structureSieve", structureSieve);
+        jo.put("originCentred", originCentred);
+        jo.put("threads", threadCount);
+        if (metricsPort > 0) jo.put("metricsPort", metricsPort);
+        if (coarseBiomes) jo.put("coarseBiomeTolerance", coarseBiomeTolerance);
+        jo.put("maxSeeds", maximumMatchingWorldsCount);
+        jo.put("width", searchRadius * 2);
+        jo.put("height", searchRadius * 2);
+        if (permuted) {
+            jo.put("permutationKey", permutationKey);
+        } else if (seedFile != null) {
+            jo.put("seedFile", seedFile.getPath());
+            jo.put("seedFormat", binarySeedFile ? "binary" : "text");
+        } else if (!randomSeeds) {
+            jo.put("minSeed", minSeed);
+            jo.put("maxSeed", maxSeed);
+        }
+
+        JSONObject include = new JSONObject();
+        include.put("biomes", namesToJson(biomeNames(biomes), biomeCoverage, biomeRegions));
+        include.put("biomeSets", namesToJson(new ArrayList<>(new LinkedHashSet<>(biomeSets.values())), biomeCoverage, biomeRegions));
+        include.put("structures", structuresToJson(structures, structureAmounts));
+        JSONObject exclude = new JSONObject();
+        exclude.put("biomes", namesToJson(biomeNames(rejectedBiomes), rejectedBiomeCoverage, rejectedBiomeRegions));
+        exclude.put("biomeSets", namesToJson(new ArrayList<>(new LinkedHashSet<>(rejectedBiomeSets.values())), rejectedBiomeCoverage, rejectedBiomeRegions));
+        exclude.put("structures", structuresToJson(rejectedStructures, rejectedStructureAmounts));
+        JSONObject search = new JSONObject();
+        search.put("include", include);
+        search.put("exclude", exclude);
+        jo.put("search", search);
+        return jo;
+    }
+
+    private static String worldTypeName(WorldType worldType) {
+        if (worldType == WorldType.AMPLIFIED) {
+            return "AMPLIFIED";
+        } else if (worldType == WorldType.LARGE_BIOMES) {
+            return "LARGE BIOMES";
+        }
+        return "DEFAULT";
+    }
+
+    private static List<String> biomeNames(Biome[] biomes) {
+        List<String> names = new ArrayList<>();
+        for (Biome biome : biomes) {
+            names.add(biome.getName());
+        }
+        return names;
+    }
+
+    /**
+     * @param amounts the {@code amount} modifier of the types that have one
+     */
+    @SuppressWarnings("unchecked")
+    private static JSONArray structuresToJson(StructureSearcher.Type[] structures, Map<StructureSearcher.Type, Integer> amounts) {
+        JSONArray entries = new JSONArray();
+        for (StructureSearcher.Type structure : structures) {
+            JSONObject entry = new JSONObject();
+            entry.put("name", structure.name());
+            if (amounts.containsKey(structure)) {
+                JSONObject modifiers = new JSONObject();
+                modifiers.put("amount", amounts.get(structure));
+                entry.put("modifiers", modifiers);
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * @param sizes   the {@code size} modifier of the entries that have one, by name
+     * @param regions the {@code region} modifier of the entries that have one, by name
+     */
+    @SuppressWarnings("unchecked")
+    private static JSONArray namesToJson(List<String> names, Map<String, Double> sizes, Map<String, Integer> regions) {
+        JSONArray entries = new JSONArray();
+        for (String name : names) {
+            JSONObject entry = new JSONObject();
+            entry.put("name", name);
+            JSONObject modifiers = new JSONObject();
+            if (sizes.containsKey(name)) {
+                modifiers.put("size", sizes.get(name));
+            }
+            if (regions.containsKey(name)) {
+                modifiers.put("region", regions.get(name));
+            }
+            if (!modifiers.isEmpty()) {
+                entry.put("modifiers", modifiers);
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the {@code size} modifier of every entry that has one, the
+     * percentage of the search area the biome or set covers.
+     */
+    private static void sizesFromJson(JSONObject group, String key, Map<String, Double> sizes) {
+        JSONArray entries = (JSONArray) group.get(key);
+        if (entries == null) {
+            return;
+        }
+        for (Object entry : entries) {
+            JSONObject modifiers = (JSONObject) ((JSONObject) entry).get("modifiers");
+            if (modifiers != null && modifiers.get("size") != null) {
+                double size = ((Number) modifiers.get("size")).doubleValue();
+                if (size < 0 || size > 100) {
+                    throw new IllegalArgumentException("Size of " + ((JSONObject) entry).get("name") + " is not a percentage: " + size);
+                }
+                sizes.put((String) ((JSONObject) entry).get("name"), size);
+            }
+        }
+    }
+
+    /**
+     * Reads the {@code region} modifier of every entry that has one, the
+     * cells the largest connected patch of the biome or set has.
+     */
+    private static void regionsFromJson(JSONObject group, String key, Map<String, Integer> regions) {
+        JSONArray entries = (JSONArray) group.get(key);
+        if (entries == null) {
+            return;
+        }
+        for (Object entry : entries) {
+            JSONObject modifiers = (JSONObject) ((JSONObject) entry).get("modifiers");
+            if (modifiers != null && modifiers.get("region") != null) {
+                int region = ((Number) modifiers.get("region")).intValue();
+                if (region < 1) {
+                    throw new IllegalArgumentException("Region of " + ((JSONObject) entry).get("name") + " is not a number of cells: " + region);
+                }
+                regions.put((String) ((JSONObject) entry).get("name"), region);
+            }
+        }
+    }
+
+    /**
+     * Reads the {@code amount} modifier of every structure that has one.
+     */
+    private static void amountsFromJson(JSONObject group, Map<StructureSearcher.Type, Integer> amounts) {
+        JSONArray entries = (JSONArray) group.get("structures");
+        if (entries == null) {
+            return;
+        }
+        for (Object entry : entries) {
+            JSONObject modifiers = (JSONObject) ((JSONObject) entry).get("modifiers");
+            if (modifiers != null && modifiers.get("amount") != null) {
+                int amount = ((Number) modifiers.get("amount")).intValue();
+                if (amount < 1) {
+                    throw new IllegalArgumentException("Amount of " + ((JSONObject) entry).get("name") + " is not a count: " + amount);
+                }
+                amounts.put(structureType((String) ((JSONObject) entry).get("name")), amount);
+            }
+        }
+    }
+
+    private static List<String> names(JSONObject group, String key) {
+        List<String> names = new ArrayList<>();
+        JSONArray entries = (JSONArray) group.get(key);
+        if (entries == null) {
+            return names;
+        }
+        for (Object entry : entries) {
+            names.add((String) ((JSONObject) entry).get("name"));
+        }
+        return names;
+    }
+
+    private static Biome[] biomesFromJson(List<String> names) {
+        Biome[] biomes = new Biome[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            biomes[i] = Biome.getByName(names.get(i));
+            if (biomes[i] == null) {
+                throw new IllegalArgumentException("Unknown biome: " + names.get(i));
+            }
+        }
+        return biomes;
+    }
+
+    private static HashMap<Biome, String> biomeSetsFromJson(List<String> names, HashMap<String, String> sets) {
+        HashMap<Biome, String> biomeSets = new HashMap<>();
+        for (String name : names) {
+            if (!sets.containsValue(name)) {
+                throw new IllegalArgumentException("Unknown biome set: " + name);
+            }
+        }
+        for (HashMap.Entry<String, String> e : sets.entrySet()) {
+            if (names.contains(e.getValue())) {
+                biomeSets.put(Biome.getByName(e.getKey()), e.getValue());
+            }
+        }
+        return biomeSets;
+    }
+
+    private static StructureSearcher.Type[] structuresFromJson(List<String> names) {
+        StructureSearcher.Type[] structures = new StructureSearcher.Type[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            structures[i] = structureType(names.get(i));
+        }
+        return structures;
+    }
+
+    private static StructureSearcher.Type structureType(String name) {
+        return StructureSearcher.Type.valueOf(name.replaceAll(" ", "_").toUpperCase());
+    }
+
+    /**
+     * Whether a sequential search was given a {@code minSeed} above its
+     * {@code maxSeed}. Such a range is empty, but the engine walks ranges
+     * unsigned and would take it for nearly the whole seed space.
+     */
+    public boolean isSeedRangeInverted() {
+        return !randomSeeds && !permuted && seedFile == null && minSeed > maxSeed;
+    }
+
+    public boolean hasCriteria() {
+        return biomes.length > 0 || rejectedBiomes.length > 0 || !biomeSets.isEmpty() || !rejectedBiomeSets.isEmpty()
+                || structures.length > 0 || rejectedStructures.length > 0;
+    }
+
+    public String getMinecraftVersion() {
+        return minecraftVersion;
+    }
+
+    public void setMinecraftVersion(String minecraftVersion) {
+        this.minecraftVersion = minecraftVersion;
+    }
+
+    public String getMinecraftPath() {
+        return minecraftPath;
+    }
+
+    public void setMinecraftPath(String minecraftPath) {
+        this.minecraftPath = minecraftPath;
+    }
+
+    public WorldType getWorldType() {
+        return worldType;
+    }
+
+    public void setWorldType(WorldType worldType) {
+        this.worldType = worldType;
+    }
+
+    public int getSearchRadius() {
+        return searchRadius;
+    }
+
+    public void setSearchRadius(int searchRadius) {
+        this.searchRadius = searchRadius;
+    }
+
+    public int getMaximumMatchingWorldsCount() {
+        return maximumMatchingWorldsCount;
+    }
+
+    public void setMaximumMatchingWorldsCount(int maximumMatchingWorldsCount) {
+        this.maximumMatchingWorldsCount = maximumMatchingWorldsCount;
+    }
+
+    public long getMinSeed() {
+        return minSeed;
+    }
+
+    public void setMinSeed(long minSeed) {
+        this.minSeed = minSeed;
+    }
+
+    public long getMaxSeed() {
+        return maxSeed;
+    }
+
+    public void setMaxSeed(long maxSeed) {
+        this.maxSeed = maxSeed;
+    }
+
+    public boolean isRandomSeeds() {
+        return randomSeeds;
+    }
+
+    public void setRandomSeeds(boolean randomSeeds) {
+        this.randomSeeds = randomSeeds;
+    }
+
+    public boolean isBedrock() {
+        return bedrock;
+    }
+
+    public void setBedrock(boolean bedrock) {
+        this.bedrock = bedrock;
+    }
+
+    /**
+     * Whether a sequential search sweeps 48 bit structure seeds first and only
+     * expands the hits to full seeds, see {@link StructureSieve}.
+     */
+    public boolean isStructureSieve() {
+        return structureSieve;
+    }
+
+    public void setStructureSieve(boolean structureSieve) {
+        this.structureSieve = structureSieve;
+    }
+
+    /**
+     * Whether the search area is centred on 0,0 instead of the spawn point,
+     * which saves looking up the spawn for every seed.
+     */
+    public boolean isOriginCentred() {
+        return originCentred;
+    }
+
+    public void setOriginCentred(boolean originCentred) {
+        this.originCentred = originCentred;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Where a sequential search saves its progress, {@code null} for none.
+     */
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Where the stage timings are written at the end of a run, {@code null}
+     * for nowhere, see {@link StageTimings#dump}.
+     */
+    public File getStatsFile() {
+        return statsFile;
+    }
+
+    public void setStatsFile(File statsFile) {
+        this.statsFile = statsFile;
+    }
+
+    /**
+     * The local port the metrics are served on, {@code 0} for none.
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    /**
+     * The file of seeds to check instead of a range, {@code null} for none.
+     * Its chunks and progress are byte offsets into the file.
+     */
+    public File getSeedFile() {
+        return seedFile;
+    }
+
+    public void setSeedFile(File seedFile) {
+        this.seedFile = seedFile;
+    }
+
+    public boolean isBinarySeedFile() {
+        return binarySeedFile;
+    }
+
+    public void setBinarySeedFile(boolean binarySeedFile) {
+        this.binarySeedFile = binarySeedFile;
+    }
+
+    /**
+     * Whether the seeds are drawn from a {@link SeedPermutation} of the seed
+     * space. The search then walks its indices like a sequential range.
+     */
+    public boolean isPermuted() {
+        return permuted;
+    }
+
+    public void setPermuted(boolean permuted) {
+        this.permuted = permuted;
+    }
+
+    public long getPermutationKey() {
+        return permutationKey;
+    }
+
+    public void setPermutationKey(long permutationKey) {
+        this.permutationKey = permutationKey;
+    }
+
+    /**
+     * Whether biomes are checked on sparse rows before the full scan, see
+     * {@link CoarseBiomeCheck}.
+     */
+    public boolean isCoarseBiomes() {
+        return coarseBiomes;
+    }
+
+    public void setCoarseBiomes(boolean coarseBiomes) {
+        this.coarseBiomes = coarseBiomes;
+    }
+
+    /**
+     * The accepted chance of the coarse biome check rejecting a world the
+     * full scan would accept.
+     */
+    public double getCoarseBiomeTolerance() {
+        return coarseBiomeTolerance;
+    }
+
+    public void setCoarseBiomeTolerance(double coarseBiomeTolerance) {
+        this.coarseBiomeTolerance = coarseBiomeTolerance;
+    }
+
+    public Biome[] getBiomes() {
+        return biomes;
+    }
+
+    public void setBiomes(Biome[] biomes) {
+        this.biomes = biomes;
+    }
+
+    public Biome[] getRejectedBiomes() {
+        return rejectedBiomes;
+    }
+
+    public void setRejectedBiomes(Biome[] rejectedBiomes) {
+        this.rejectedBiomes = rejectedBiomes;
+    }
+
+    public HashMap<Biome, String> getBiomeSets() {
+        return biomeSets;
+    }
+
+    public void setBiomeSets(HashMap<Biome, String> biomeSets) {
+        this.biomeSets = biomeSets;
+    }
+
+    public HashMap<Biome, String> getRejectedBiomeSets() {
+        return rejectedBiomeSets;
+    }
+
+    public void setRejectedBiomeSets(HashMap<Biome, String> rejectedBiomeSets) {
+        this.rejectedBiomeSets = rejectedBiomeSets;
+    }
+
+    /**
+     * By biome or set name, the percentage of the search area an included
+     * biome or set has to cover at least. Those without one only have to be
+     * there.
+     */
+    public HashMap<String, Double> getBiomeCoverage() {
+        return biomeCoverage;
+    }
+
+    public void setBiomeCoverage(HashMap<String, Double> biomeCoverage) {
+        this.biomeCoverage = biomeCoverage;
+    }
+
+    /**
+     * By biome or set name, the percentage of the search area an excluded
+     * biome or set has to stay below. Those without one must not be there.
+     */
+    public HashMap<String, Double> getRejectedBiomeCoverage() {
+        return rejectedBiomeCoverage;
+    }
+
+    public void setRejectedBiomeCoverage(HashMap<String, Double> rejectedBiomeCoverage) {
+        this.rejectedBiomeCoverage = rejectedBiomeCoverage;
+    }
+
+    /**
+     * By biome or set name, the cells the largest connected patch of an
+     * included biome or set has to reach.
+     */
+    public HashMap<String, Integer> getBiomeRegions() {
+        return biomeRegions;
+    }
+
+    public void setBiomeRegions(HashMap<String, Integer> biomeRegions) {
+        this.biomeRegions = biomeRegions;
+    }
+
+    /**
+     * By biome or set name, the cells the largest connected patch of an
+     * excluded biome or set has to stay below.
+     */
+    public HashMap<String, Integer> getRejectedBiomeRegions() {
+        return rejectedBiomeRegions;
+    }
+
+    public void setRejectedBiomeRegions(HashMap<String, Integer> rejectedBiomeRegions) {
+        this.rejectedBiomeRegions = rejectedBiomeRegions;
+    }
+
+    public StructureSearcher.Type[] getStructures() {
+        return structures;
+    }
+
+    public void setStructures(StructureSearcher.Type[] structures) {
+        this.structures = structures;
+    }
+
+    /**
+     * How many of each included structure type the area needs, types without
+     * one need one.
+     */
+    public HashMap<StructureSearcher.Type, Integer> getStructureAmounts() {
+        return structureAmounts;
+    }
+
+    public void setStructureAmounts(HashMap<StructureSearcher.Type, Integer> structureAmounts) {
+        this.structureAmounts = structureAmounts;
+    }
+
+    /**
+     * How many of each excluded structure type reject a world, types without
+     * one reject it with one.
+     */
+    public HashMap<StructureSearcher.Type, Integer> getRejectedStructureAmounts() {
+        return rejectedStructureAmounts;
+    }
+
+    public void setRejectedStructureAmounts(HashMap<StructureSearcher.Type, Integer> rejectedStructureAmounts) {
+        this.rejectedStructureAmounts = rejectedStructureAmounts;
+    }
+
+    public StructureSearcher.Type[] getRejectedStructures() {
+        return rejectedStructures;
+    }
+
+    public void setRejectedStructures(StructureSearcher.Type[] rejectedStructures) {
+        this.rejectedStructures = rejectedStructures;
+    }
+}
@@ -11,27 +11,33 @@ import amidst.mojangapi.world.World;
 import amidst.mojangapi.world.WorldBuilder;
 import amidst.mojangapi.world.WorldOptions;
 import amidst.mojangapi.world.WorldSeed;
-import amidst.mojangapi.world.biome.Biome;
+import amidst.mojangapi.world.WorldType;
 import amidst.mojangapi.world.biome.UnknownBiomeIndexException;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.icon.WorldIcon;
 import amidst.parsing.FormatException;
-import javafx.application.Platform;
 import org.json.simple.parser.ParseException;
 import sassa.gui.Variables;
-import sassa.gui.fxmlController;
-import sassa.gui.guiCollector;
-import sassa.util.Singleton;
 import sassa.util.Util;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Random;
 import java.util.function.Consumer;
 
+/**
+ * A single search worker. Each worker owns its own {@link WorldBuilder} and
+ * {@link MinecraftInterface} and pulls seeds from its {@link SearchEngine}
+ * until the engine stops.
+ */
 public class Searcher implements Runnable {
 
+    private final SearchEngine engine;
+
     private WorldBuilder mWorldBuilder;
 
     private MinecraftInterface minecraftInterface;
@@ -43,33 +49,79 @@ public class Searcher implements Runnable {
      */
     private int searchRadius;
 
-    /**
-     * The number of matching worlds to discover.
-     * <p>
-     * The value of this field is greater than or equal to {@code 0}.
-     */
-    private int maximumMatchingWorldsCount;
-
-    private long minSeed;
-    private long maxSeed;
-
     private boolean RANDOM_SEEDS;
     private boolean BEDROCK;
-    private boolean quitImmediate;
+    // Resolved once from the spec, not per seed
+    private final WorldType worldType;
+
+    private final SearchSpec spec;
+    /** Index of this worker in the engine, for reporting progress. */
+    private final int worker;
+    private final StageTimings timings;
+
+    private final Random random = new Random();
+
+    private final StagePlanner planner;
+
+    private final BiomeFilter biomeFilter;
+    private final CoarseBiomeCheck coarseBiomes;
+
+    // Shared by both structure stages, the spawn area mostly lies inside the origin area
+    private final StructureCache structureCache = new StructureCache();
+    private static final StructureSearcher.Type[] NO_STRUCTURES = new StructureSearcher.Type[0];
+    private final StructureCounter originStructures;
+    private final StructureCounter spawnStructures;
+    private static final Consumer<World> NO_OP_ON_DISPOSE = world -> {};
 
-    public static long currentSeedCheck = 0L;
+    private final StructureSieve sieve;
+    private final SeedFile seedFile;
+    private final SeedPermutation permutation;
+
+    // Spawn of the last seed it was looked up for
+    private CoordinatesInWorld spawn;
+    private long spawnSeed;
 
-    guiCollector guiCollector = new guiCollector();
     static Util util = new Util();
-    static Singleton singleton = Singleton.getInstance();
 
-    public Searcher(String minecraftVersion, int searchRadius, int maximumMatchingWorldsCount, long minSeed, long maxSeed, boolean randSeed, boolean bedrock)
+    public Searcher(SearchEngine engine, int worker)
             throws IOException, FormatException, MinecraftInterfaceCreationException {
+        this(engine, worker, loadMinecraftInterface(engine.getSpec()));
+    }
+
+    /**
+     * A searcher on a given interface, benchmarks use it to run without a
+     * Minecraft install.
+     */
+    Searcher(SearchEngine engine, int worker, MinecraftInterface minecraftInterface) {
+        this.engine = engine;
+        this.worker = worker;
+        this.timings = engine.getStageTimings();
+        this.spec = engine.getSpec();
         this.mWorldBuilder = WorldBuilder.createSilentPlayerless();
+        this.minecraftInterface = minecraftInterface;
+        this.searchRadius = spec.getSearchRadius();
+        this.RANDOM_SEEDS = spec.isRandomSeeds();
+        this.BEDROCK = spec.isBedrock();
+        this.worldType = spec.getWorldType();
+        this.biomeFilter = new BiomeFilter(spec.getBiomes(), spec.getBiomeSets(), spec.getRejectedBiomes(), spec.getRejectedBiomeSets(),
+                spec.getBiomeCoverage(), spec.getRejectedBiomeCoverage(), spec.getBiomeRegions(), spec.getRejectedBiomeRegions());
+        // One counter per structure stage, reused for every seed
+        this.originStructures = new StructureCounter(spec.getStructures(), spec.getStructureAmounts(), NO_STRUCTURES, new HashMap<>());
+        this.spawnStructures = new StructureCounter(spec.getStructures(), spec.getStructureAmounts(),
+                spec.getRejectedStructures(), spec.getRejectedStructureAmounts());
+        this.coarseBiomes = spec.isCoarseBiomes() ? new CoarseBiomeCheck(spec.getCoarseBiomeTolerance()) : null;
+        this.planner = new StagePlanner(enabledStages());
+        this.sieve = engine.isSieving() ? new StructureSieve(spec.getStructures(), spec.getMinecraftVersion(), searchRadius) : null;
+        this.seedFile = engine.getSeedFile();
+        this.permutation = spec.isPermuted() ? new SeedPermutation(spec.getPermutationKey(), BEDROCK) : null;
+    }
 
+    private static MinecraftInterface loadMinecraftInterface(SearchSpec spec)
+            throws IOException, FormatException, MinecraftInterfaceCreationException {
         MinecraftInstallation minecraftInstallation;
 
-        String pathToDirectory = singleton.getMCPath().getText();
+        String minecraftVersion = spec.getMinecraftVersion();
+        String pathToDirectory = spec.getMinecraftPath();
         if (pathToDirectory == null ||
                 pathToDirectory.trim().equals(""))
         {
@@ -84,187 +136,250 @@ public class Searcher implements Runnable {
             util.console("No install directory found for Minecraft version " + minecraftVersion + "!");
             throw e;
         }
-        this.minecraftInterface = MinecraftInterfaces.fromLocalProfile(launcherProfile);
-        this.searchRadius = searchRadius;
-        this.maximumMatchingWorldsCount = maximumMatchingWorldsCount;
-        this.minSeed = minSeed;
-        this.maxSeed = maxSeed;
-        this.currentSeedCheck = minSeed;
-        this.RANDOM_SEEDS = randSeed;
-        this.BEDROCK = bedrock;
+        return MinecraftInterfaces.fromLocalProfile(launcherProfile);
     }
 
-    /**
-     * Creates a random, default world using the default (empty) generator
-     * options.
-     */
-    World createWorld() throws MinecraftInterfaceException {
-        Consumer<World> onDispose = world -> {};
-        long seedNum = (new Random()).nextLong();
-        if(BEDROCK){
-            seedNum = (new Random()).nextInt();
-            if(seedNum < 0){
+    long nextRandomSeed() {
+        if (BEDROCK) {
+            long seedNum = random.nextInt();
+            if (seedNum < 0) {
                 seedNum += 4294967296L;
             }
+            return seedNum;
         }
-        if (RANDOM_SEEDS) {
-            WorldOptions worldOptions = new WorldOptions(WorldSeed.fromUserInput("" + seedNum), util.getWorldType(singleton.getWorldType().getValue().toString()));
-            return this.mWorldBuilder.from(this.minecraftInterface, onDispose, worldOptions);
-        } else {
-            WorldOptions worldOptions = new WorldOptions(WorldSeed.fromUserInput("" + this.currentSeedCheck), util.getWorldType(singleton.getWorldType().getValue().toString()));
-            Variables.updateCurrentSeed(this.currentSeedCheck);
-            this.currentSeedCheck++;
-            return this.mWorldBuilder.from(this.minecraftInterface, onDispose, worldOptions);
-        }
+        return random.nextLong();
     }
 
     /**
-     * Searches for matching worlds, and prints the seed of each matching world
-     * to the given output stream.
-     *
-     * @throws MinecraftInterfaceCreationException
-     * @throws FormatException
-     * @throws IOException
-     * @throws InterruptedException
+     * Creates a default world for the given seed using the default (empty)
+     * generator options. The seed goes to amidst as a number, it never takes
+     * the detour through a string.
+     */
+    World createWorld(long seedNum) throws MinecraftInterfaceException {
+        WorldOptions worldOptions = new WorldOptions(WorldSeed.fromSaveGame(seedNum), worldType);
+        return this.mWorldBuilder.from(this.minecraftInterface, NO_OP_ON_DISPOSE, worldOptions);
+    }
+
+    /**
+     * Checks a single seed and reports it to the engine if it is accepted.
      */
-    Biome[] biomes = {}; boolean searchBiomes = true;
-    Biome[] rejectedBiomes = {}; boolean searchRejectedBiomes = true;
-    HashMap<Biome, String> biomeSets = new HashMap<>(); boolean searchBiomeSets = true;
-    HashMap<Biome, String> rejectedBiomeSets = new HashMap<>(); boolean searchRejectedBiomesSets = true;
-    StructureSearcher.Type[] structures = {}; boolean searchStructures = true;
-    StructureSearcher.Type[] rejectedStructures = {}; boolean searchRejectedStructures = true;
-
-    void search() throws InterruptedException, IOException, FormatException, MinecraftInterfaceCreationException, ParseException {
-        Variables.reset();
-        util.console("Creating search lists...");
-
-        biomes = guiCollector.getBiomesFromArrayList(Singleton.getInstance().getBiomesGridPane(),"Include");
-        rejectedBiomes = guiCollector.getBiomesFromArrayList(Singleton.getInstance().getBiomesGridPane(),"Exclude");
-        searchBiomes = guiCollector.checkIfBiomesSelected(biomes, searchBiomes);
-        searchRejectedBiomes = guiCollector.checkIfBiomesSelected(rejectedBiomes, searchRejectedBiomes);
-        structures = guiCollector.getStructuresFromArrayList(Singleton.getInstance().getStructureGridPane(), "Include");
-        searchStructures = guiCollector.checkIfStructuresSelected(structures, searchStructures);
-        rejectedStructures = guiCollector.getStructuresFromArrayList(Singleton.getInstance().getStructureGridPane(), "Exclude");
-        searchRejectedStructures = guiCollector.checkIfStructuresSelected(rejectedStructures, searchRejectedStructures);
-        biomeSets = guiCollector.getBiomesSetsFromHashMap(Singleton.getInstance().getBiomeSetsGridPane(), "Include");
-        searchBiomeSets = guiCollector.checkIfBiomeSetsSelected(biomeSets, searchBiomeSets);
-        rejectedBiomeSets = guiCollector.getBiomesSetsFromHashMap(Singleton.getInstance().getBiomeSetsGridPane(), "Exclude");
-        searchRejectedBiomesSets = guiCollector.checkIfBiomeSetsSelected(rejectedBiomeSets, searchRejectedBiomesSets);
-
-        if (!searchBiomes && !searchRejectedBiomes && !searchBiomeSets && !searchRejectedBiomesSets && !searchStructures && !searchRejectedStructures) {
-            util.console("\nNo biomes/structures are selected or rejected!\nPlease select some before starting!\nSearch has been cancelled.\nRecommend you clear the console!\n");
+    void checkSeed(long seed) {
+        World world;
+        Variables.checkWorld();
+        try {
+            long start = System.nanoTime();
+            world = createWorld(seed);
+            timings.record(worker, StageTimings.WORLD_CREATION, System.nanoTime() - start);
+        } catch (MinecraftInterfaceException e) {
+            // TODO log
             return;
         }
+        boolean isWorldAccepted;
+        try {
+            isWorldAccepted = accept(world);
+        } catch (InterruptedException | IOException | FormatException | MinecraftInterfaceCreationException |
+                MinecraftInterfaceException | UnknownBiomeIndexException | ParseException e) {
+            // Biome data for the world could not be obtained.
+            // Biome data included an unknown biome code.
+            // TODO log
+            return;
+        }
+        if (isWorldAccepted) {
+            engine.acceptWorld(world.getWorldSeed().getLong(), biomeFilter.getMatchDistance(), biomeFilter.describeRegions());
+        }
+    }
 
-        if (biomes.length > 0 || !biomeSets.isEmpty()) {
-            util.console("Included Biomes:");
-            for (Biome biome : biomes) {
-                util.console("\t" + biome.getName());
-            }
-            for (Biome biome : biomeSets.keySet()) {
-                util.console("\t" + biome.getName());
+    /**
+     * Blocks while the engine is paused.
+     *
+     * @return {@code false} if the engine was stopped
+     */
+    private boolean waitWhilePaused() {
+        while (engine.isPaused() && engine.isRunning()) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return false;
             }
         }
-        if (rejectedBiomes.length > 0 || !rejectedBiomeSets.isEmpty()) {
-            util.console("Excluded Biomes:");
-            for (Biome biome : rejectedBiomes) {
-                util.console("\t" + biome.getName());
-            }
-            for (Biome biome : rejectedBiomeSets.keySet()) {
-                util.console("\t" + biome.getName());
+        return engine.isRunning();
+    }
+
+    void search() {
+        if (RANDOM_SEEDS) {
+            while (waitWhilePaused()) {
+                checkSeed(nextRandomSeed());
             }
+            return;
         }
-        if (structures.length > 0) {
-            util.console("Included Structures:");
-            for (StructureSearcher.Type structure : structures) {
-                util.console("\t" + structure);
-            }
+        if (seedFile != null) {
+            searchSeedFile();
+            return;
         }
-        if (rejectedStructures.length > 0) {
-            util.console("Excluded Structures:");
-            for (StructureSearcher.Type structure : rejectedStructures) {
-                util.console("\t" + structure);
+        long[] chunk = new long[3];
+        while (waitWhilePaused() && engine.claimChunk(worker, chunk)) {
+            long seed = chunk[0];
+            while (engine.isRunning()) {
+                if (engine.isPaused() && !waitWhilePaused()) {
+                    return;
+                }
+                // With a permutation the range is one of indices into it
+                long current = permutation == null ? seed : permutation.seedAt(seed);
+                Variables.updateCurrentSeed(current);
+                if (sieve == null) {
+                    checkSeed(current);
+                } else if (sieve.test(seed)) {
+                    expandStructureSeed(seed);
+                }
+                if (!engine.isRunning()) {
+                    // The seed may have been cut short, leave it unfinished in the checkpoint
+                    return;
+                }
+                if (seed == chunk[1]) {
+                    engine.chunkDone(worker, chunk[2]);
+                    break;
+                }
+                seed++;
+                engine.seedDone(worker, seed);
             }
         }
-        fxmlController controller = singleton.getController();
-        while (Variables.acceptedWorlds() < this.maximumMatchingWorldsCount && controller.isRunning() && this.currentSeedCheck <= this.maxSeed && !quitImmediate) {
-            boolean paused = false;
-            if (controller != null)
-                paused = controller.isPaused();
-            if (!paused) {
-                World world;
-                Variables.checkWorld();
-                try {
-                    world = createWorld();
-                } catch (MinecraftInterfaceException e) {
-                    // TODO log
-                    continue;
+    }
+
+    /**
+     * Checks the seeds listed in the seed file. The chunks are bytes of the
+     * file, progress is the offset of the next record.
+     */
+    private void searchSeedFile() {
+        long[] chunk = new long[3];
+        long[] record = new long[2];
+        while (waitWhilePaused() && engine.claimChunk(worker, chunk)) {
+            long position = seedFile.recordStart(chunk[0]);
+            while (engine.isRunning()) {
+                if (position > chunk[1] || position >= seedFile.size()) {
+                    engine.chunkDone(worker, chunk[2]);
+                    break;
                 }
-                boolean isWorldAccepted;
-                try {
-                    isWorldAccepted = accept(world);
-                } catch (MinecraftInterfaceException | UnknownBiomeIndexException | ParseException e) {
-                    // Biome data for the world could not be obtained.
-                    // Biome data included an unknown biome code.
-                    // TODO log
-                    continue;
+                if (engine.isPaused() && !waitWhilePaused()) {
+                    return;
                 }
-                if (!isWorldAccepted) {
-                    continue;
+                if (seedFile.read(position, record)) {
+                    Variables.updateCurrentSeed(record[0]);
+                    checkSeed(record[0]);
+                    if (!engine.isRunning()) {
+                        return;
+                    }
                 }
-                System.out.println("Valid Seed: " + world.getWorldSeed().getLong());
-
-                util.console((Variables.acceptedWorlds() + 1) + ": " + world.getWorldSeed().getLong() + " (rejected " + Variables.worldsSinceAccepted() + ")");
-                Variables.acceptWorld();
+                position = record[1];
+                engine.seedDone(worker, position);
             }
         }
+    }
 
-        util.console("Finished Search!");
-        Platform.runLater(() -> {
-            try {
-                singleton.getController().stop();
-            } catch (InterruptedException | IOException | FormatException | MinecraftInterfaceCreationException e) {
-                e.printStackTrace();
+    /**
+     * The stages this search needs, in the order used until the planner has
+     * statistics.
+     */
+    private List<FilterStage> enabledStages() {
+        List<FilterStage> stages = new ArrayList<>();
+        boolean structures = spec.getStructures().length > 0 || spec.getRejectedStructures().length > 0;
+        boolean biomes = !biomeFilter.isEmpty();
+        if (structures) {
+            // Only included structures can be pre-checked around 0,0, and centred
+            // on 0,0 the spawn structure check already covers it
+            if (spec.getStructures().length > 0 && !spec.isOriginCentred()) {
+                stages.add(FilterStage.ORIGIN_STRUCTURES);
             }
-        });
+            stages.add(FilterStage.SPAWN_STRUCTURES);
+        }
+        if (biomes) {
+            stages.add(FilterStage.BIOMES);
+        }
+        return stages;
+    }
 
+    /**
+     * Checks every full seed sharing the lower 48 bits of a structure seed
+     * that passed the sieve.
+     */
+    private void expandStructureSeed(long structureSeed) {
+        for (long upper = 0; upper < StructureSieve.UPPER_VARIANTS && engine.isRunning(); upper++) {
+            if (engine.isPaused() && !waitWhilePaused()) {
+                return;
+            }
+            checkSeed((upper << 48) | structureSeed);
+        }
     }
 
     private boolean accept(World world) throws InterruptedException, FormatException, UnknownBiomeIndexException, MinecraftInterfaceException, ParseException, MinecraftInterfaceCreationException, IOException {
-        // Look from 0,0 to increase search speed
-        CoordinatesInWorld searchCenter = CoordinatesInWorld.origin();
-
-        // Check structures within the area
-        if (!StructureSearcher.accept(world, minecraftInterface, searchCenter, searchRadius + 256, structures, rejectedStructures)) return false;
-
-        // Set the real spawnpoint
-        searchCenter = world.getSpawnWorldIcon().getCoordinates();
-
-        if (searchCenter == null) {
-            // The world spawn could not be determined, default back to 0,0
-            searchCenter = CoordinatesInWorld.origin();
+        CoordinatesInWorld center = null;
+        structureCache.reset();
+        try {
+            for (int index : planner.order()) {
+                FilterStage stage = planner.stage(index);
+                if (stage.needsSpawn() && center == null) {
+                    center = searchCenter(world);
+                }
+                long start = System.nanoTime();
+                boolean passed = runStage(stage, world, center);
+                long elapsed = System.nanoTime() - start;
+                planner.record(index, elapsed, !passed);
+                timings.record(worker, StageTimings.of(stage), elapsed);
+                if (!passed) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            planner.seedDone();
         }
-
-        // Check structures within the area
-        if (!StructureSearcher.accept(world, minecraftInterface, searchCenter, searchRadius, structures, rejectedStructures)) return false;
-        // Check biomes within the area
-        if (!BiomeSearcher.accept(world, minecraftInterface, searchCenter, searchRadius, biomes, biomeSets, rejectedBiomes, rejectedBiomeSets)) return false;
-
-        return true;
     }
 
     /**
-     * Searches for matching worlds, and prints the seed of each matching world
-     * to the standard output stream.
+     * The centre for the spawn centred stages. Origin centred searches never
+     * look up the spawn, otherwise it is looked up at most once per seed.
      */
+    private CoordinatesInWorld searchCenter(World world) {
+        if (spec.isOriginCentred()) {
+            return CoordinatesInWorld.origin();
+        }
+        long seed = world.getWorldSeed().getLong();
+        if (spawn == null || spawnSeed != seed) {
+            long start = System.nanoTime();
+            spawn = findSpawn(world);
+            spawnSeed = seed;
+            long elapsed = System.nanoTime() - start;
+            planner.recordSpawn(elapsed);
+            timings.record(worker, StageTimings.SPAWN_LOOKUP, elapsed);
+        }
+        return spawn;
+    }
 
-    public void run() {
-        try {
-            search();
-        } catch (ParseException | InterruptedException | IOException | FormatException | MinecraftInterfaceCreationException e) {
-            e.printStackTrace();
+    private CoordinatesInWorld findSpawn(World world) {
+        WorldIcon spawnIcon = world.getSpawnWorldIcon();
+        if (spawnIcon == null || spawnIcon.getCoordinates() == null) {
+            // The world spawn could not be determined, default back to 0,0
+            return CoordinatesInWorld.origin();
         }
+        return spawnIcon.getCoordinates();
+    }
 
+    private boolean runStage(FilterStage stage, World world, CoordinatesInWorld center) throws InterruptedException, FormatException, UnknownBiomeIndexException, MinecraftInterfaceException, ParseException, MinecraftInterfaceCreationException, IOException {
+        switch (stage) {
+            case ORIGIN_STRUCTURES:
+                // Look from 0,0 to increase search speed. The area is wider than the
+                // spawn area, so an excluded structure here proves nothing yet
+                return StructureSearcher.accept(world, structureCache, CoordinatesInWorld.origin(), searchRadius + 256, originStructures);
+            case SPAWN_STRUCTURES:
+                return StructureSearcher.accept(world, structureCache, center, searchRadius, spawnStructures);
+            case BIOMES:
+                return BiomeSearcher.accept(minecraftInterface, center, searchRadius, biomeFilter, coarseBiomes);
+            default:
+                return true;
+        }
+    }
+
+    public void run() {
+        search();
     }
 
     static {
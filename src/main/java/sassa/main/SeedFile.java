@@ -0,0 +1,169 @@
+package sassa.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A list of seeds to check, read straight from a memory-mapped file so a list
+ * of any length costs no heap and the OS pages it in as the workers go.
+ * <p>
+ * Text files hold one seed per line. Anything after a blank following the
+ * seed is ignored, as is a leading {@code "n: "}, so the result lines of an
+ * earlier search can be fed back in. Blank lines, {@code #} comments and lines that are not a seed
+ * are skipped. Binary files hold big-endian 8 byte seeds, as written by
+ * {@link java.io.DataOutputStream#writeLong}.
+ * <p>
+ * Seeds are found by byte offset, which is what the search hands out in
+ * chunks and saves in its checkpoint. A record belongs to the chunk its first
+ * byte is in. Only absolute reads are used, so every worker shares one
+ * instance.
+ */
+class SeedFile {
+
+	/** Size of one binary record. */
+	static final int RECORD_SIZE = 8;
+	/** One mapping covers at most this many bytes, the limit of a {@link MappedByteBuffer}. */
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	private final File file;
+	private final boolean binary;
+	private final long size;
+	private final MappedByteBuffer[] segments;
+
+	SeedFile(File file, boolean binary) throws IOException {
+		this.file = file;
+		this.binary = binary;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			size = channel.size();
+			segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_BITS;
+				// The mappings stay valid once the channel is closed
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, size - start));
+			}
+		}
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	long size() {
+		return size;
+	}
+
+	private byte byteAt(long position) {
+		return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+	}
+
+	/**
+	 * The offset of the first record starting at or after a position, or the
+	 * size of the file if there is none.
+	 */
+	long recordStart(long position) {
+		if (binary) {
+			long start = (position + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE;
+			return start + RECORD_SIZE <= size ? start : size;
+		}
+		if (position <= 0) {
+			return 0;
+		}
+		while (position < size && byteAt(position - 1) != '\n') {
+			position++;
+		}
+		return Math.min(position, size);
+	}
+
+	/**
+	 * Reads the record starting at {@code start}.
+	 *
+	 * @param record receives the seed and the offset of the next record
+	 * @return {@code false} if the record holds no seed, the offset of the
+	 *         next record is set either way
+	 */
+	boolean read(long start, long[] record) {
+		if (binary) {
+			long seed = 0;
+			for (int i = 0; i < RECORD_SIZE; i++) {
+				seed = (seed << 8) | (byteAt(start + i) & 0xff);
+			}
+			record[0] = seed;
+			record[1] = start + RECORD_SIZE + RECORD_SIZE <= size ? start + RECORD_SIZE : size;
+			return true;
+		}
+		long end = start;
+		while (end < size && byteAt(end) != '\n') {
+			end++;
+		}
+		record[1] = end < size ? end + 1 : size;
+
+		long position = skipBlanks(start, end);
+		long next = parseNumber(position, end, record);
+		if (next < 0) {
+			return false;
+		}
+		if (next < end && byteAt(next) == ':') {
+			// "n: seed", the numbering of a result line
+			next = parseNumber(skipBlanks(next + 1, end), end, record);
+		}
+		return next >= 0 && endsNumber(next, end);
+	}
+
+	/**
+	 * Whether a number is followed by the end of the line or a blank, so
+	 * {@code 1.5} or {@code 12ab} are not taken for seeds.
+	 */
+	private boolean endsNumber(long position, long end) {
+		if (position == end) {
+			return true;
+		}
+		byte b = byteAt(position);
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	private long skipBlanks(long position, long end) {
+		while (position < end && (byteAt(position) == ' ' || byteAt(position) == '\t')) {
+			position++;
+		}
+		return position;
+	}
+
+	/**
+	 * Parses a decimal long into {@code record[0]}, the way
+	 * {@link Long#parseLong} does.
+	 *
+	 * @return the offset after the number, {@code -1} if there is no number
+	 *         or it does not fit
+	 */
+	private long parseNumber(long position, long end, long[] record) {
+		boolean negative = position < end && byteAt(position) == '-';
+		if (negative || (position < end && byteAt(position) == '+')) {
+			position++;
+		}
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multiplyLimit = limit / 10;
+		// Accumulated negatively, so Long.MIN_VALUE fits
+		long result = 0;
+		long digitsStart = position;
+		while (position < end) {
+			int digit = byteAt(position) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			if (result < multiplyLimit || result * 10 < limit + digit) {
+				return -1;
+			}
+			result = result * 10 - digit;
+			position++;
+		}
+		if (position == digitsStart) {
+			return -1;
+		}
+		record[0] = negative ? result : -result;
+		return position;
+	}
+}
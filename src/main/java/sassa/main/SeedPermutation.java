@@ -0,0 +1,49 @@
+package sassa.main;
+
+/**
+ * A keyed shuffle of the whole seed space: index {@code i} maps to seed
+ * {@link #seedAt seedAt(i)}, and no two indices map to the same seed.
+ * <p>
+ * Walking the indices in order therefore visits random looking seeds without
+ * ever checking one twice, and the same key and index always give the same
+ * seed, so a random search can be handed out in chunks, checkpointed and
+ * resumed like a sequential one. Java seeds cover all 2^64 longs, Bedrock
+ * seeds the 2^32 values from {@code 0} to {@code 2^32 - 1}.
+ * <p>
+ * Every step of the mix is invertible on its own: adding or xoring the key,
+ * multiplying by an odd constant and xoring in a right shift of itself.
+ */
+class SeedPermutation {
+
+	/** The last index of the Bedrock seed space. */
+	static final long BEDROCK_LAST_INDEX = 0xFFFFFFFFL;
+
+	private final long key;
+	private final boolean bedrock;
+
+	SeedPermutation(long key, boolean bedrock) {
+		this.key = key;
+		this.bedrock = bedrock;
+	}
+
+	long seedAt(long index) {
+		if (bedrock) {
+			return permute32((int) index) & 0xFFFFFFFFL;
+		}
+		// splitmix64's finaliser, keyed
+		long x = index ^ key;
+		x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x += key >>> 32 | key << 32;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		return x ^ (x >>> 31);
+	}
+
+	private int permute32(int index) {
+		// murmur3's fmix32, keyed with both halves of the key
+		int x = index ^ (int) key;
+		x = (x ^ (x >>> 16)) * 0x85EBCA6B;
+		x += (int) (key >>> 32);
+		x = (x ^ (x >>> 13)) * 0xC2B2AE35;
+		return x ^ (x >>> 16);
+	}
+}
@@ -0,0 +1,146 @@
+package sassa.main;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides the order a worker runs its {@link FilterStage}s in.
+ * <p>
+ * Every stage records how long it takes and how often it rejects. Every
+ * {@link #REPLAN_INTERVAL} seeds the planner picks the order with the lowest
+ * expected cost per seed, so cheap stages that reject a lot move to the front.
+ * The spawn lookup is charged to whichever spawn centred stage runs first,
+ * which keeps it behind every stage that doesn't need it unless a spawn
+ * centred stage is worth paying for it early.
+ * <p>
+ * One planner per worker, nothing here is thread safe.
+ */
+class StagePlanner {
+
+	/** Seeds between two plans. */
+	static final int REPLAN_INTERVAL = 512;
+
+	/** Runs after which a stage's statistics are halved, so old data fades out. */
+	static final long DECAY_THRESHOLD = 1 << 14;
+
+	private final FilterStage[] stages;
+	private final long[] runs;
+	private final long[] rejects;
+	private final long[] nanos;
+	private long spawnRuns;
+	private long spawnNanos;
+
+	private int[] order;
+	private int seedsSincePlan = 0;
+
+	/**
+	 * @param stages the enabled stages, in the order to use until the first plan
+	 */
+	StagePlanner(List<FilterStage> stages) {
+		this.stages = stages.toArray(new FilterStage[0]);
+		this.runs = new long[this.stages.length];
+		this.rejects = new long[this.stages.length];
+		this.nanos = new long[this.stages.length];
+		this.order = new int[this.stages.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+	}
+
+	int[] order() {
+		return order;
+	}
+
+	FilterStage stage(int index) {
+		return stages[index];
+	}
+
+	void record(int index, long elapsedNanos, boolean rejected) {
+		runs[index]++;
+		nanos[index] += elapsedNanos;
+		if (rejected) {
+			rejects[index]++;
+		}
+		if (runs[index] >= DECAY_THRESHOLD) {
+			runs[index] /= 2;
+			rejects[index] /= 2;
+			nanos[index] /= 2;
+		}
+	}
+
+	void recordSpawn(long elapsedNanos) {
+		spawnRuns++;
+		spawnNanos += elapsedNanos;
+		if (spawnRuns >= DECAY_THRESHOLD) {
+			spawnRuns /= 2;
+			spawnNanos /= 2;
+		}
+	}
+
+	/**
+	 * Called once per seed, replans every {@link #REPLAN_INTERVAL} seeds.
+	 */
+	void seedDone() {
+		if (++seedsSincePlan >= REPLAN_INTERVAL) {
+			seedsSincePlan = 0;
+			order = plan();
+		}
+	}
+
+	/**
+	 * Finds the cheapest order with a dynamic program over the sets of stages
+	 * already run. Stages are treated as independent, so the chance of a seed
+	 * surviving a set doesn't depend on the order inside it.
+	 */
+	int[] plan() {
+		int n = stages.length;
+		double[] cost = new double[n];
+		double[] pass = new double[n];
+		for (int i = 0; i < n; i++) {
+			// A stage that never ran looks free, so it gets tried and measured
+			cost[i] = runs[i] == 0 ? 0 : (double) nanos[i] / runs[i];
+			// Smoothed so a few samples can't make a stage look perfect
+			pass[i] = (runs[i] - rejects[i] + 1.0) / (runs[i] + 2.0);
+		}
+		double spawnCost = spawnRuns == 0 ? 0 : (double) spawnNanos / spawnRuns;
+
+		int full = (1 << n) - 1;
+		double[] best = new double[full + 1];
+		double[] survive = new double[full + 1];
+		int[] last = new int[full + 1];
+		boolean[] spawnResolved = new boolean[full + 1];
+		Arrays.fill(best, Double.MAX_VALUE);
+		best[0] = 0;
+		survive[0] = 1;
+		for (int set = 0; set < full; set++) {
+			if (best[set] == Double.MAX_VALUE) {
+				continue;
+			}
+			for (int i = 0; i < n; i++) {
+				if ((set & (1 << i)) != 0) {
+					continue;
+				}
+				double stageCost = cost[i];
+				if (stages[i].needsSpawn() && !spawnResolved[set]) {
+					stageCost += spawnCost;
+				}
+				int next = set | (1 << i);
+				double total = best[set] + survive[set] * stageCost;
+				if (total < best[next]) {
+					best[next] = total;
+					last[next] = i;
+				}
+				survive[next] = survive[set] * pass[i];
+				spawnResolved[next] = spawnResolved[set] || stages[i].needsSpawn();
+			}
+		}
+
+		int[] planned = new int[n];
+		int set = full;
+		for (int position = n - 1; position >= 0; position--) {
+			planned[position] = last[set];
+			set &= ~(1 << last[set]);
+		}
+		return planned;
+	}
+}
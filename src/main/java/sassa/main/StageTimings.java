@@ -0,0 +1,155 @@
+package sassa.main;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Where the time per seed goes: world creation, the spawn lookup and every
+ * {@link FilterStage}. Each worker records into its own
+ * {@link LatencyHistogram}s, readers merge them.
+ */
+public class StageTimings {
+
+	public static final int WORLD_CREATION = 0;
+	public static final int SPAWN_LOOKUP = 1;
+	private static final int FIRST_STAGE = 2;
+	public static final int COUNT = FIRST_STAGE + FilterStage.values().length;
+
+	private final LatencyHistogram[][] histograms;
+
+	StageTimings(int workers) {
+		histograms = new LatencyHistogram[workers][COUNT];
+		for (LatencyHistogram[] worker : histograms) {
+			for (int i = 0; i < COUNT; i++) {
+				worker[i] = new LatencyHistogram();
+			}
+		}
+	}
+
+	static int of(FilterStage stage) {
+		return FIRST_STAGE + stage.ordinal();
+	}
+
+	public static String name(int timing) {
+		switch (timing) {
+			case WORLD_CREATION: return "World creation";
+			case SPAWN_LOOKUP: return "Spawn lookup";
+			default:
+				switch (FilterStage.values()[timing - FIRST_STAGE]) {
+					case ORIGIN_STRUCTURES: return "Origin structures";
+					case SPAWN_STRUCTURES: return "Spawn structures";
+					case BIOMES: return "Biomes";
+					default: return FilterStage.values()[timing - FIRST_STAGE].toString();
+				}
+		}
+	}
+
+	void record(int worker, int timing, long nanos) {
+		histograms[worker][timing].record(nanos);
+	}
+
+	/**
+	 * The buckets of one timing summed over every worker.
+	 */
+	public long[] merged(int timing) {
+		long[] counts = new long[LatencyHistogram.BUCKETS];
+		for (LatencyHistogram[] worker : histograms) {
+			worker[timing].addTo(counts);
+		}
+		return counts;
+	}
+
+	public long count(int timing) {
+		long count = 0;
+		for (LatencyHistogram[] worker : histograms) {
+			count += worker[timing].getCount();
+		}
+		return count;
+	}
+
+	/**
+	 * How often one worker recorded a timing. Every world checked is created
+	 * once, so for {@link #WORLD_CREATION} this is the worker's checked count.
+	 */
+	public long count(int worker, int timing) {
+		return histograms[worker][timing].getCount();
+	}
+
+	public long sum(int timing) {
+		long sum = 0;
+		for (LatencyHistogram[] worker : histograms) {
+			sum += worker[timing].getSum();
+		}
+		return sum;
+	}
+
+	public int getWorkerCount() {
+		return histograms.length;
+	}
+
+	public long max(int timing) {
+		long max = 0;
+		for (LatencyHistogram[] worker : histograms) {
+			max = Math.max(max, worker[timing].getMax());
+		}
+		return max;
+	}
+
+	/**
+	 * One line per timing that has been recorded: count, p50, p99 and max.
+	 */
+	public String format() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-18s %9s %8s %8s %8s%n", "", "count", "p50", "p99", "max"));
+		for (int i = 0; i < COUNT; i++) {
+			long count = count(i);
+			if (count == 0) {
+				continue;
+			}
+			long[] counts = merged(i);
+			sb.append(String.format("%-18s %9d %8s %8s %8s%n", name(i), count,
+					formatNanos(LatencyHistogram.valueAt(counts, 0.5)),
+					formatNanos(LatencyHistogram.valueAt(counts, 0.99)),
+					formatNanos(max(i))));
+		}
+		return sb.toString();
+	}
+
+	static String formatNanos(long nanos) {
+		if (nanos < 1000) {
+			return nanos + "ns";
+		} else if (nanos < 1000000) {
+			return String.format("%.1fus", nanos / 1e3);
+		} else if (nanos < 1000000000) {
+			return String.format("%.1fms", nanos / 1e6);
+		}
+		return String.format("%.2fs", nanos / 1e9);
+	}
+
+	/**
+	 * Writes the summary followed by every non-empty bucket, as the highest
+	 * nanoseconds it holds and its count, for a closer look elsewhere.
+	 */
+	public void dump(File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			out.print(format());
+			for (int i = 0; i < COUNT; i++) {
+				if (count(i) == 0) {
+					continue;
+				}
+				out.println();
+				out.println("# " + name(i) + " (nanos <=, count)");
+				long[] counts = merged(i);
+				for (int bucket = 0; bucket < counts.length; bucket++) {
+					if (counts[bucket] > 0) {
+						out.println(LatencyHistogram.highestValueOf(bucket) + "\t" + counts[bucket]);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package sassa.main;
+
+import amidst.mojangapi.world.World;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.icon.WorldIcon;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Remembers what each structure producer returned for each region of the
+ * current seed, so a producer runs at most once per region however many
+ * structure types come from it and however often the region is asked for.
+ * <p>
+ * One cache per worker, {@link #reset()} it before every seed.
+ */
+public class StructureCache {
+
+	private final HashMap<Long, List<WorldIcon>>[] regions;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public StructureCache() {
+		regions = new HashMap[StructureSearcher.Producer.values().length];
+		for (int i = 0; i < regions.length; i++) {
+			regions[i] = new HashMap<>();
+		}
+	}
+
+	public void reset() {
+		for (HashMap<Long, List<WorldIcon>> region : regions) {
+			region.clear();
+		}
+	}
+
+	/**
+	 * The icons {@code producer} finds in the region with its north west
+	 * corner at {@code x, y}.
+	 */
+	public List<WorldIcon> getAt(StructureSearcher.Producer producer, World world, long x, long y) {
+		HashMap<Long, List<WorldIcon>> region = regions[producer.ordinal()];
+		// World coordinates stay well inside an int, so both fit in one key
+		Long key = (x << 32) ^ (y & 0xFFFFFFFFL);
+		List<WorldIcon> icons = region.get(key);
+		if (icons == null) {
+			icons = producer.getAt(world, CoordinatesInWorld.from(x, y));
+			region.put(key, icons);
+		}
+		return icons;
+	}
+}
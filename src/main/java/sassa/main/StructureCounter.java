@@ -0,0 +1,162 @@
+package sassa.main;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Counts structures of each type while {@link StructureSearcher} walks the
+ * regions of an area, for criteria like at least three villages or fewer than
+ * two witch huts.
+ * <p>
+ * Every type has a plain {@code int} counter. An icon is counted once however
+ * often it comes up, its coordinates are kept until the type has enough. A
+ * type is no longer asked for once its count is settled: an included type
+ * when it reached its amount, an excluded one when the regions left can't
+ * bring it to its amount any more, see {@link StructureSearcher.Type#maxPerRegion()}.
+ * The world is rejected as soon as an excluded type reaches its amount, or an
+ * included one can no longer reach it.
+ * <p>
+ * One per worker and area, {@link #reset()} it before every walk. Nothing is
+ * allocated after construction.
+ */
+class StructureCounter {
+
+	private static final StructureSearcher.Type[] TYPES = StructureSearcher.Type.values();
+
+	/** Per type, how many an included type needs, {@code 0} if it is not included. */
+	private final int[] atLeast = new int[TYPES.length];
+	/** Per type, how many an excluded type has to stay below, {@code 0} if it is not excluded. */
+	private final int[] below = new int[TYPES.length];
+	/** Bits of every included or excluded type. */
+	private final long counted;
+
+	// Per walk state
+	private final int[] counts = new int[TYPES.length];
+	/** Per type, the icons counted so far as packed coordinates. */
+	private final long[][] seen = new long[TYPES.length][];
+	private long open;
+	private boolean failed;
+
+	/**
+	 * @param amounts         how many of each included type are needed, one
+	 *                        for types without an amount
+	 * @param rejectedAmounts how many of each excluded type reject the world,
+	 *                        one for types without an amount
+	 */
+	StructureCounter(StructureSearcher.Type[] structures, Map<StructureSearcher.Type, Integer> amounts,
+			StructureSearcher.Type[] rejectedStructures, Map<StructureSearcher.Type, Integer> rejectedAmounts) {
+		long counted = 0;
+		for (StructureSearcher.Type type : structures) {
+			atLeast[type.ordinal()] = amounts.getOrDefault(type, 1);
+			counted |= type.bit();
+		}
+		for (StructureSearcher.Type type : rejectedStructures) {
+			below[type.ordinal()] = rejectedAmounts.getOrDefault(type, 1);
+			counted |= type.bit();
+		}
+		this.counted = counted;
+		for (int i = 0; i < TYPES.length; i++) {
+			seen[i] = new long[Math.max(atLeast[i], below[i])];
+		}
+		reset();
+	}
+
+	boolean isEmpty() {
+		return counted == 0;
+	}
+
+	/**
+	 * Starts a new walk.
+	 */
+	void reset() {
+		Arrays.fill(counts, 0);
+		open = counted;
+		failed = false;
+	}
+
+	/**
+	 * Bits of the types whose count is not settled yet.
+	 */
+	long open() {
+		return failed ? 0 : open;
+	}
+
+	/**
+	 * Counts an icon for every open type in {@code types}, unless it was
+	 * counted before.
+	 */
+	void add(long types, long x, long y) {
+		types &= open;
+		// World coordinates stay well inside an int, so both fit in one key
+		long key = (x << 32) ^ (y & 0xFFFFFFFFL);
+		while (types != 0) {
+			int type = Long.numberOfTrailingZeros(types);
+			types &= types - 1;
+			count(type, key);
+		}
+	}
+
+	private void count(int type, long key) {
+		long[] keys = seen[type];
+		int count = counts[type];
+		if (count == keys.length) {
+			// Already settled for this walk
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			if (keys[i] == key) {
+				return;
+			}
+		}
+		keys[count] = key;
+		counts[type] = ++count;
+		if (below[type] > 0 && count >= below[type]) {
+			failed = true;
+		}
+	}
+
+	/**
+	 * Settles the types the regions left can no longer change, call after
+	 * every region with the number still to walk.
+	 */
+	void regionsLeft(long regions) {
+		long types = open;
+		while (types != 0) {
+			int type = Long.numberOfTrailingZeros(types);
+			types &= types - 1;
+			long reachable = counts[type] + regions * TYPES[type].maxPerRegion();
+			if (atLeast[type] > 0 && reachable < atLeast[type]) {
+				failed = true;
+				return;
+			}
+			boolean enough = counts[type] >= atLeast[type];
+			boolean safe = below[type] == 0 || reachable < below[type];
+			if (enough && safe) {
+				open &= ~(1L << type);
+			}
+		}
+	}
+
+	/**
+	 * Whether every included type reached its amount and every excluded type
+	 * stayed below its own. Only final once the walk is over.
+	 */
+	boolean isAccepted() {
+		if (failed) {
+			return false;
+		}
+		for (int i = 0; i < TYPES.length; i++) {
+			if (counts[i] < atLeast[i] || below[i] > 0 && counts[i] >= below[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * How many of a type the walk counted, at most as many as its amount.
+	 */
+	int count(StructureSearcher.Type type) {
+		return counts[type.ordinal()];
+	}
+}
@@ -1,20 +1,137 @@
 package sassa.main;
 
-import amidst.mojangapi.minecraftinterface.MinecraftInterface;
 import amidst.mojangapi.world.World;
 import amidst.mojangapi.world.biome.Biome;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
 import amidst.mojangapi.world.icon.WorldIcon;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class StructureSearcher {
 	
 	public boolean structureFound = false;
+
+	/** Side of the area one producer call covers, a 32 chunk fragment in amidst. */
+	static final int REGION_SIZE = 512;
 	
+	/**
+	 * The amidst producers structures come from. Several types share one.
+	 */
+	public enum Producer {
+		VILLAGE, STRONGHOLD, MANSION, MINESHAFT, OCEAN_FEATURES, OCEAN_MONUMENT, TEMPLE;
+
+		List<WorldIcon> getAt(World world, CoordinatesInWorld coords) {
+			switch (this) {
+				case VILLAGE: return findVillageFeatures(world, coords);
+				case STRONGHOLD: return findStronghold(world, coords);
+				case MANSION: return findMansion(world, coords);
+				case MINESHAFT: return findMineshafts(world, coords);
+				case OCEAN_FEATURES: return findOceanFeatures(world, coords);
+				case OCEAN_MONUMENT: return findOceanMounments(world, coords);
+				case TEMPLE: return findTempleFeatures(world, coords);
+				default: return Collections.emptyList();
+			}
+		}
+	}
+
+	/*
+	 * Most structures get at most one attempt per placement cell. A region
+	 * meets at most 2 by 2 cells that are 32 chunks or wider, 3 by 3 of 16
+	 * chunks or wider, and structures placed per chunk at most every chunk.
+	 */
+	private static final int WIDE_CELLS = 4;
+	private static final int NARROW_CELLS = 9;
+	private static final int CHUNKS = (REGION_SIZE / 16) * (REGION_SIZE / 16);
+	private static final int UNBOUNDED = Integer.MAX_VALUE;
+
 	public enum Type {
-		MINESHAFT, OCEAN_RUINS, OCEAN_FEATURES, VILLAGE, STRONGHOLD, MANSION, OCEAN_MONUMENT, SLIME_CHUNK, BIOME_DATA, PILLAGER_OUTPOST, DESERT_TEMPLE, JUNGLE_TEMPLE,
-		BURIED_TREASURE, SHIPWRECK, WITCH_HUT, IGLOO
+		MINESHAFT(Producer.MINESHAFT, null, CHUNKS),
+		OCEAN_RUINS(Producer.OCEAN_FEATURES, "OCEAN RUINS", NARROW_CELLS),
+		OCEAN_FEATURES(Producer.OCEAN_FEATURES, null, UNBOUNDED),
+		VILLAGE(Producer.VILLAGE, "VILLAGE", WIDE_CELLS),
+		STRONGHOLD(Producer.STRONGHOLD, null, UNBOUNDED),
+		MANSION(Producer.MANSION, null, WIDE_CELLS),
+		OCEAN_MONUMENT(Producer.OCEAN_MONUMENT, null, WIDE_CELLS),
+		SLIME_CHUNK(null, null, 0),
+		BIOME_DATA(null, null, 0),
+		PILLAGER_OUTPOST(Producer.VILLAGE, "PILLAGER OUTPOST", WIDE_CELLS),
+		DESERT_TEMPLE(Producer.TEMPLE, "DESERT TEMPLE", WIDE_CELLS),
+		JUNGLE_TEMPLE(Producer.TEMPLE, "JUNGLE TEMPLE", WIDE_CELLS),
+		BURIED_TREASURE(Producer.OCEAN_FEATURES, "BURIED TREASURE", CHUNKS),
+		SHIPWRECK(Producer.OCEAN_FEATURES, "SHIPWRECK", NARROW_CELLS),
+		WITCH_HUT(Producer.TEMPLE, "WITCH HUT", WIDE_CELLS),
+		IGLOO(Producer.TEMPLE, "IGLOO", WIDE_CELLS);
+
+		/** Where the type comes from, {@code null} if it can't be searched for. */
+		private final Producer producer;
+		/** Upper case icon name, {@code null} when every icon of the producer counts. */
+		private final String iconName;
+		private final int maxPerRegion;
+
+		Type(Producer producer, String iconName, int maxPerRegion) {
+			this.producer = producer;
+			this.iconName = iconName;
+			this.maxPerRegion = maxPerRegion;
+		}
+
+		public Producer getProducer() {
+			return producer;
+		}
+
+		/**
+		 * The most structures of this type one region can hold in any
+		 * version, Java or Bedrock.
+		 */
+		int maxPerRegion() {
+			return maxPerRegion;
+		}
+
+		long bit() {
+			return 1L << ordinal();
+		}
+
+		boolean matches(WorldIcon icon) {
+			return iconName == null || (typesOfIconName(icon.getName()) & bit()) != 0;
+		}
+	}
+
+	/** Icon name as amidst returns it, to the bits of the types with that name. */
+	private static final ConcurrentHashMap<String, Long> typesByIconName = new ConcurrentHashMap<>();
+	/** Per producer, the bits of every type it produces. */
+	private static final long[] producerTypes = new long[Producer.values().length];
+	/** Per producer, the bits of the types that every one of its icons counts as. */
+	private static final long[] producerWildcards = new long[Producer.values().length];
+
+	static {
+		for (Type type : Type.values()) {
+			if (type.producer != null) {
+				producerTypes[type.producer.ordinal()] |= type.bit();
+				if (type.iconName == null) {
+					producerWildcards[type.producer.ordinal()] |= type.bit();
+				}
+			}
+		}
+	}
+
+	/**
+	 * The types an icon name stands for as a bitmask. Upper casing and
+	 * comparing only happens the first time a name is seen.
+	 */
+	static long typesOfIconName(String name) {
+		Long types = typesByIconName.get(name);
+		if (types == null) {
+			String upperName = name.toUpperCase();
+			long bits = 0;
+			for (Type type : Type.values()) {
+				if (upperName.equals(type.iconName)) {
+					bits |= type.bit();
+				}
+			}
+			types = bits;
+			typesByIconName.put(name, types);
+		}
+		return types;
 	}
 
 	public static List<WorldIcon> findVillageFeatures(World world, CoordinatesInWorld coords) {
@@ -25,7 +142,7 @@ public class StructureSearcher {
 		List<WorldIcon> villageFeatures = findVillageFeatures(world, coords);
 		List<WorldIcon> pillager_outpost = new ArrayList<WorldIcon>();
 		for (WorldIcon feature : villageFeatures) {
-			if (feature.getName().toUpperCase().equals("PILLAGER OUTPOST")) {
+			if (Type.PILLAGER_OUTPOST.matches(feature)) {
 				pillager_outpost.add(feature);
 			}
 		}
@@ -36,7 +153,7 @@ public class StructureSearcher {
 		List<WorldIcon> villageFeatures = findVillageFeatures(world, coords);
 		List<WorldIcon> village = new ArrayList<WorldIcon>();
 		for (WorldIcon feature : villageFeatures) {
-			if (feature.getName().toUpperCase().equals("VILLAGE")) {
+			if (Type.VILLAGE.matches(feature)) {
 				village.add(feature);
 			}
 		}
@@ -59,7 +176,7 @@ public class StructureSearcher {
 		List<WorldIcon> ocean_features = findOceanFeatures(world, coords);
 		List<WorldIcon> ocean_ruins = new ArrayList<WorldIcon>();
 		for (WorldIcon feature : ocean_features) {
-			if (feature.getName().toUpperCase().equals("OCEAN RUINS")) {
+			if (Type.OCEAN_RUINS.matches(feature)) {
 				ocean_ruins.add(feature);
 			}
 		}
@@ -70,7 +187,7 @@ public class StructureSearcher {
 		List<WorldIcon> ocean_features = findOceanFeatures(world, coords);
 		List<WorldIcon> buried_treasure = new ArrayList<WorldIcon>();
 		for (WorldIcon feature : ocean_features) {
-			if (feature.getName().toUpperCase().equals("BURIED TREASURE")) {
+			if (Type.BURIED_TREASURE.matches(feature)) {
 				buried_treasure.add(feature);
 			}
 		}
@@ -81,7 +198,7 @@ public class StructureSearcher {
 		List<WorldIcon> ocean_features = findOceanFeatures(world, coords);
 		List<WorldIcon> shipwreck = new ArrayList<WorldIcon>();
 		for (WorldIcon feature : ocean_features) {
-			if (feature.getName().toUpperCase().equals("SHIPWRECK")) {
+			if (Type.SHIPWRECK.matches(feature)) {
 				shipwreck.add(feature);
 			}
 		}
@@ -103,7 +220,7 @@ public class StructureSearcher {
 		List<WorldIcon> templeFeatures = findTempleFeatures(world, coords);
 		List<WorldIcon> desert_temple = new ArrayList<WorldIcon>();
 		for (WorldIcon feature : templeFeatures) {
-			if (feature.getName().toUpperCase().equals("DESERT TEMPLE")) {
+			if (Type.DESERT_TEMPLE.matches(feature)) {
 				desert_temple.add(feature);
 			}
 		}
@@ -114,7 +231,7 @@ public class StructureSearcher {
 		List<WorldIcon> templeFeatures = findTempleFeatures(world, coords);
 		List<WorldIcon> jungle_temple = new ArrayList<WorldIcon>();
 		for (WorldIcon feature : templeFeatures) {
-			if (feature.getName().toUpperCase().equals("JUNGLE TEMPLE")) {
+			if (Type.JUNGLE_TEMPLE.matches(feature)) {
 				jungle_temple.add(feature);
 			}
 		}
@@ -125,7 +242,7 @@ public class StructureSearcher {
 		List<WorldIcon> templeFeatures = findTempleFeatures(world, coords);
 		List<WorldIcon> witch_hut = new ArrayList<WorldIcon>();
 		for (WorldIcon feature : templeFeatures) {
-			if (feature.getName().toUpperCase().equals("WITCH HUT")) {
+			if (Type.WITCH_HUT.matches(feature)) {
 				witch_hut.add(feature);
 			}
 		}
@@ -136,7 +253,7 @@ public class StructureSearcher {
 		List<WorldIcon> templeFeatures = findTempleFeatures(world, coords);
 		List<WorldIcon> igloo = new ArrayList<WorldIcon>();
 		for (WorldIcon feature : templeFeatures) {
-			if (feature.getName().toUpperCase().equals("IGLOO")) {
+			if (Type.IGLOO.matches(feature)) {
 				igloo.add(feature);
 			}
 		}
@@ -147,171 +264,66 @@ public class StructureSearcher {
 		return CoordinatesInWorld.from(nwCornerX, nwCornerY);
 	}
 
-	public static Set<Type> hasStructures(Set<Type> structures, World world, long nwCornerX, long nwCornerY, int distX, int distY) {
-		Set<Type> foundStructures = new HashSet<>();
-        int multiplierX = 0;
-        int multiplierY = 0;
-		while ((nwCornerX + (multiplierX * 512)) < (nwCornerX + distX) && !structures.isEmpty()) {
-			while ((nwCornerY + (multiplierY * 512)) < (nwCornerY + distY) && !structures.isEmpty()) {
-				CoordinatesInWorld coords = coords(nwCornerX + (multiplierX * 512), nwCornerY + (multiplierY * 512));
-				for (Type type : structures) {
-					if (type.equals(Type.MINESHAFT)) {
-						List<WorldIcon> mineshafts = StructureSearcher.findMineshafts(
-								world,
-								coords);
-						if (mineshafts.size() >= 1 && (nwCornerX + distX) > mineshafts.get(0).getCoordinates().getX() && (nwCornerY + distY) > mineshafts.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.OCEAN_RUINS)) {
-						List<WorldIcon> ocean_ruins = StructureSearcher.findOceanRuins(
-								world,
-								coords);
-						if (ocean_ruins.size() >= 1 && (nwCornerX + distX) > ocean_ruins.get(0).getCoordinates().getX() && (nwCornerY + distY) > ocean_ruins.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.OCEAN_FEATURES)) {
-						List<WorldIcon> ocean_features = StructureSearcher.findOceanFeatures(
-								world,
-								coords);
-						if (ocean_features.size() >= 1 && (nwCornerX + distX) > ocean_features.get(0).getCoordinates().getX() && (nwCornerY + distY) > ocean_features.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.OCEAN_MONUMENT)) {
-						List<WorldIcon> ocean_monuments = StructureSearcher.findOceanMounments(
-								world,
-								coords);
-						if (ocean_monuments.size() >= 1 && (nwCornerX + distX) > ocean_monuments.get(0).getCoordinates().getX() && (nwCornerY + distY) > ocean_monuments.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.SHIPWRECK)) {
-						List<WorldIcon> shipwreck = StructureSearcher.findShipwreck(
-								world,
-								coords);
-						if (shipwreck.size() >= 1 && (nwCornerX + distX) > shipwreck.get(0).getCoordinates().getX() && (nwCornerY + distY) > shipwreck.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.BURIED_TREASURE)) {
-						List<WorldIcon> buriedTreasure = StructureSearcher.findBuriedTreasure(
-								world,
-								coords);
-						if (buriedTreasure.size() >= 1 && (nwCornerX + distX) > buriedTreasure.get(0).getCoordinates().getX() && (nwCornerY + distY) > buriedTreasure.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.MANSION)) {
-						List<WorldIcon> mansion = StructureSearcher.findMansion(
-								world,
-								coords);
-						if (mansion.size() >= 1 && (nwCornerX + distX) > mansion.get(0).getCoordinates().getX() && (nwCornerY + distY) > mansion.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.STRONGHOLD)) {
-						List<WorldIcon> stronghold = StructureSearcher.findStronghold(
-								world,
-								coords);
-						if (stronghold.size() >= 1 && (nwCornerX + distX) > stronghold.get(0).getCoordinates().getX() && (nwCornerY + distY) > stronghold.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.VILLAGE)) {
-						List<WorldIcon> village = StructureSearcher.findVillage(
-								world,
-								coords);
-						if (village.size() >= 1 && (nwCornerX + distX) > village.get(0).getCoordinates().getX() && (nwCornerY + distY) > village.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);;
-						}
-					} else if (type.equals(Type.PILLAGER_OUTPOST)) {
-						List<WorldIcon> pillagerOutpost = StructureSearcher.findPillagerOutpost(
-								world,
-								coords);
-						if (pillagerOutpost.size() >= 1 && (nwCornerX + distX) > pillagerOutpost.get(0).getCoordinates().getX() && (nwCornerY + distY) > pillagerOutpost.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.DESERT_TEMPLE)) {
-						List<WorldIcon> deserttemple = StructureSearcher.findDesertTemple(
-								world,
-								coords);
-						if (deserttemple.size() >= 1 && (nwCornerX + distX) > deserttemple.get(0).getCoordinates().getX() && (nwCornerY + distY) > deserttemple.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.JUNGLE_TEMPLE)) {
-						List<WorldIcon> jungleTemple = StructureSearcher.findJungleTemple(
-								world,
-								coords);
-						if (jungleTemple.size() >= 1 && (nwCornerX + distX) > jungleTemple.get(0).getCoordinates().getX() && (nwCornerY + distY) > jungleTemple.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.WITCH_HUT)) {
-						List<WorldIcon> witchhut = StructureSearcher.findWitchHut(
-								world,
-								coords);
-						if (witchhut.size() >= 1 && (nwCornerX + distX) > witchhut.get(0).getCoordinates().getX() && (nwCornerY + distY) > witchhut.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
-						}
-					} else if (type.equals(Type.IGLOO)) {
-						List<WorldIcon> igloo = StructureSearcher.findIgloo(
-								world,
-								coords);
-						if (igloo.size() >= 1 && (nwCornerX + distX) > igloo.get(0).getCoordinates().getX() && (nwCornerY + distY) > igloo.get(0).getCoordinates().getY()) {
-							foundStructures.add(type);
+	/**
+	 * Walks the area region by region, counting the structures of every type
+	 * the counter still asks for. Every producer needed runs once per region,
+	 * all of its types are classified from that one result. The walk ends
+	 * once no type is open any more, see {@link StructureCounter}.
+	 * <p>
+	 * Regions are snapped to a {@link #REGION_SIZE} grid, so overlapping areas
+	 * checked for the same seed (the origin and the spawn area) ask the cache
+	 * for the same regions and each one is only produced once.
+	 */
+	static void countStructures(StructureCounter counter, World world, StructureCache cache, long nwCornerX, long nwCornerY, int distX, int distY) {
+		counter.reset();
+		long seCornerX = nwCornerX + distX;
+		long seCornerY = nwCornerY + distY;
+		long firstRegionX = Math.floorDiv(nwCornerX, REGION_SIZE) * REGION_SIZE;
+		long firstRegionY = Math.floorDiv(nwCornerY, REGION_SIZE) * REGION_SIZE;
+		long regionsLeft = ((seCornerX - firstRegionX + REGION_SIZE - 1) / REGION_SIZE)
+				* ((seCornerY - firstRegionY + REGION_SIZE - 1) / REGION_SIZE);
+		// Amounts the whole area can't hold fail before any region is produced
+		counter.regionsLeft(regionsLeft);
+		for (long x = firstRegionX; x < seCornerX && counter.open() != 0; x += REGION_SIZE) {
+			for (long y = firstRegionY; y < seCornerY && counter.open() != 0; y += REGION_SIZE) {
+				for (Producer producer : Producer.values()) {
+					long wantedHere = counter.open() & producerTypes[producer.ordinal()];
+					if (wantedHere == 0) {
+						continue;
+					}
+					for (WorldIcon icon : cache.getAt(producer, world, x, y)) {
+						CoordinatesInWorld iconCoords = icon.getCoordinates();
+						long iconX = iconCoords.getX();
+						long iconY = iconCoords.getY();
+						// Edge regions stick out of the area
+						if (iconX < nwCornerX || iconY < nwCornerY || seCornerX <= iconX || seCornerY <= iconY) {
+							continue;
 						}
+						long iconTypes = producerWildcards[producer.ordinal()] | typesOfIconName(icon.getName());
+						counter.add(iconTypes & wantedHere, iconX, iconY);
 					}
 				}
-				// Remove any structures we have already found, reduce unneeded lookups
-				structures.removeAll(foundStructures);
-				multiplierY++;
+				counter.regionsLeft(--regionsLeft);
 			}
-			multiplierY=0;
-			multiplierX++;
 		}
-
-		return foundStructures;
 	}
 
-	public static boolean accept(World world, MinecraftInterface minecraftInterface, CoordinatesInWorld center, int SearchRadius, Type[] structures, Type[] rejectedStructures){
-		long searchCenterX = center.getX();
-		long searchCenterY = center.getY();
-
-		Set<StructureSearcher.Type> undiscoveredStructures = new HashSet<>(Arrays.asList(structures));
-		// Only search if list not empty
-		if (!undiscoveredStructures.isEmpty()) {
-			Set<StructureSearcher.Type> foundStructures = StructureSearcher.hasStructures(
-					undiscoveredStructures,
-					world,
-					searchCenterX - SearchRadius,
-					searchCenterY - SearchRadius,
-					SearchRadius * 2,
-					SearchRadius * 2);
-			for (StructureSearcher.Type struct : foundStructures) {
-				undiscoveredStructures.remove(struct);
-			}
-
-			// Check if any included structures have not been found, if so seed is rejected
-			if (!undiscoveredStructures.isEmpty()) {
-				return false;
-			}
-		}
-
-		Set<StructureSearcher.Type> undiscoveredRejectedStructures = new HashSet<>(Arrays.asList(rejectedStructures));
-		// Only search if list not empty
-		if (!undiscoveredRejectedStructures.isEmpty()) {
-			Set<StructureSearcher.Type> foundRejectedStructures = StructureSearcher.hasStructures(
-					undiscoveredRejectedStructures,
-					world,
-					searchCenterX - SearchRadius,
-					searchCenterY - SearchRadius,
-					SearchRadius * 2,
-					SearchRadius * 2);
-			for (StructureSearcher.Type struct : foundRejectedStructures) {
-				// Check if any excluded structures have been found, if so seed is rejected
-				if(undiscoveredRejectedStructures.contains(struct)){
-					return false;
-				}
-			}
-		}
-
-		if (undiscoveredStructures.isEmpty()) {
+	/**
+	 * Whether the structures within {@code SearchRadius} of {@code center}
+	 * meet the amounts of a counter, which is reset here.
+	 */
+	static boolean accept(World world, StructureCache cache, CoordinatesInWorld center, int SearchRadius, StructureCounter counter) {
+		if (counter.isEmpty()) {
 			return true;
 		}
-
-		return false;
+		countStructures(
+				counter,
+				world,
+				cache,
+				center.getX() - SearchRadius,
+				center.getY() - SearchRadius,
+				SearchRadius * 2,
+				SearchRadius * 2);
+		return counter.isAccepted();
 	}
 }
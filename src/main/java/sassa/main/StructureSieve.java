@@ -0,0 +1,163 @@
+package sassa.main;
+
+import sassa.util.Version;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cheap first pass over 48 bit structure seeds.
+ * <p>
+ * In Java Edition the chunk a region based structure tries to generate in is
+ * picked by a {@link java.util.Random} seeded from the world seed, which only
+ * uses the lower 48 bits. Whether it actually generates there depends on the
+ * biomes, which need the full seed. So if none of a type's attempts fall
+ * inside the area, no seed sharing those 48 bits can have that type there, and
+ * all 65536 of them can be skipped at once.
+ * <p>
+ * The area is the one the origin structure check uses (radius + 256 around
+ * 0,0), so the sieve never throws away a seed the normal search would accept.
+ * Only types whose placement is known for the selected version are sieved,
+ * everything else is left to the full check. One sieve per worker.
+ */
+class StructureSieve {
+
+	static final long STRUCTURE_SEED_MASK = (1L << 48) - 1;
+	/** Number of full seeds sharing one structure seed. */
+	static final int UPPER_VARIANTS = 1 << 16;
+
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+
+	/**
+	 * How a structure picks its chunk within a region.
+	 */
+	private static class Placement {
+		final long salt;
+		final int spacing;
+		final int separation;
+		/** Mansions and monuments average two rolls, biasing towards the region centre. */
+		final boolean triangular;
+
+		Placement(long salt, int spacing, int separation, boolean triangular) {
+			this.salt = salt;
+			this.spacing = spacing;
+			this.separation = separation;
+			this.triangular = triangular;
+		}
+	}
+
+	private final Placement[] placements;
+	private final int minChunk;
+	private final int maxChunk;
+	private long random;
+
+	StructureSieve(StructureSearcher.Type[] structures, String minecraftVersion, int searchRadius) {
+		int version = Version.getVersions().get(minecraftVersion);
+		List<Placement> placements = new ArrayList<>();
+		for (StructureSearcher.Type type : structures) {
+			Placement placement = placementOf(type, version);
+			if (placement != null) {
+				placements.add(placement);
+			}
+		}
+		this.placements = placements.toArray(new Placement[0]);
+		// One chunk of slack on each side for where the icon sits in its chunk
+		int radius = searchRadius + 256;
+		this.minChunk = Math.floorDiv(-radius, 16) - 1;
+		this.maxChunk = Math.floorDiv(radius, 16) + 1;
+	}
+
+	private static Placement placementOf(StructureSearcher.Type type, int version) {
+		boolean perTypeSalts = version >= Version.getVersions().get(Version.V1_13);
+		switch (type) {
+			case VILLAGE:
+				return new Placement(10387312L, 32, 8, false);
+			case OCEAN_MONUMENT:
+				return new Placement(10387313L, 32, 5, true);
+			case MANSION:
+				return new Placement(10387319L, 80, 20, true);
+			case PILLAGER_OUTPOST:
+				return new Placement(165745296L, 32, 8, false);
+			case DESERT_TEMPLE:
+				return new Placement(14357617L, 32, 8, false);
+			case IGLOO:
+				return new Placement(perTypeSalts ? 14357618L : 14357617L, 32, 8, false);
+			case JUNGLE_TEMPLE:
+				return new Placement(perTypeSalts ? 14357619L : 14357617L, 32, 8, false);
+			case WITCH_HUT:
+				return new Placement(perTypeSalts ? 14357620L : 14357617L, 32, 8, false);
+			default:
+				// Not region based, or spacing differs between versions we support
+				return null;
+		}
+	}
+
+	/**
+	 * Whether any of the included structures can be sieved at all.
+	 */
+	boolean canSieve() {
+		return placements.length > 0;
+	}
+
+	/**
+	 * Whether every sievable structure has an attempt inside the area for this
+	 * structure seed.
+	 */
+	boolean test(long structureSeed) {
+		for (Placement placement : placements) {
+			if (!hasAttemptInArea(placement, structureSeed)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean hasAttemptInArea(Placement placement, long structureSeed) {
+		int range = placement.spacing - placement.separation;
+		int minRegion = Math.floorDiv(minChunk, placement.spacing);
+		int maxRegion = Math.floorDiv(maxChunk, placement.spacing);
+		for (int regionX = minRegion; regionX <= maxRegion; regionX++) {
+			for (int regionZ = minRegion; regionZ <= maxRegion; regionZ++) {
+				setSeed(regionX * 341873128712L + regionZ * 132897987541L + structureSeed + placement.salt);
+				int chunkX;
+				int chunkZ;
+				if (placement.triangular) {
+					chunkX = regionX * placement.spacing + (nextInt(range) + nextInt(range)) / 2;
+					chunkZ = regionZ * placement.spacing + (nextInt(range) + nextInt(range)) / 2;
+				} else {
+					chunkX = regionX * placement.spacing + nextInt(range);
+					chunkZ = regionZ * placement.spacing + nextInt(range);
+				}
+				if (chunkX >= minChunk && chunkX <= maxChunk && chunkZ >= minChunk && chunkZ <= maxChunk) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// java.util.Random without the allocation
+
+	private void setSeed(long seed) {
+		random = (seed ^ MULTIPLIER) & STRUCTURE_SEED_MASK;
+	}
+
+	private int next(int bits) {
+		random = (random * MULTIPLIER + ADDEND) & STRUCTURE_SEED_MASK;
+		return (int) (random >>> (48 - bits));
+	}
+
+	private int nextInt(int bound) {
+		if ((bound & -bound) == bound) {
+			return (int) ((bound * (long) next(31)) >> 31);
+		}
+		int bits;
+		int value;
+		do {
+			bits = next(31);
+			value = bits % bound;
+		} while (bits - value + (bound - 1) < 0);
+		return value;
+	}
+}
@@ -0,0 +1,153 @@
+package sassa.main;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches chunks leased from a {@link Coordinator}.
+ * <p>
+ * The spec comes from the coordinator, only the thread count and the
+ * Minecraft install are this machine's own. Seeds are checked by an ordinary
+ * {@link SearchEngine} that takes its chunks from here instead of its range.
+ * If the coordinator goes away the search stops, its leases are handed to
+ * other workers.
+ */
+public class WorkerNode implements ChunkSource {
+
+	/** How often the coordinator is told this worker is still alive. */
+	static final long HEARTBEAT_INTERVAL_MS = 10000;
+
+	private final Socket socket;
+	private final BufferedReader in;
+	private final BufferedWriter out;
+	private SearchEngine engine;
+
+	public WorkerNode(String host, int port) throws IOException {
+		this.socket = new Socket(host, port);
+		this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Sends one request and waits for its reply. Synchronized so the replies
+	 * of the searcher threads and the heartbeat never get mixed up.
+	 */
+	private synchronized String request(String line) throws IOException {
+		out.write(line);
+		out.newLine();
+		out.flush();
+		String reply = in.readLine();
+		if (reply == null) {
+			throw new EOFException("The coordinator closed the connection");
+		}
+		return reply;
+	}
+
+	/**
+	 * Searches until the coordinator has nothing left or goes away.
+	 *
+	 * @param threadCount searcher threads, {@code 0} for one per core
+	 * @param minecraftPath the local Minecraft directory, {@code null} for the default one
+	 */
+	public void run(int threadCount, String minecraftPath) throws IOException, ParseException {
+		String reply = request("HELLO " + InetAddress.getLocalHost().getHostName());
+		if (!reply.startsWith("SPEC ")) {
+			throw new IOException("Unexpected reply from the coordinator: " + reply);
+		}
+		SearchSpec spec = SearchSpec.fromJson((JSONObject) new JSONParser().parse(reply.substring(5)));
+		spec.setThreadCount(threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors());
+		spec.setMinecraftPath(minecraftPath);
+		spec.setCheckpointFile(null);
+
+		engine = new SearchEngine(spec);
+		engine.setChunkSource(this);
+		ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "sassa-worker-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		heartbeat.scheduleAtFixedRate(() -> {
+			try {
+				if (request("HEARTBEAT").equals("STOP")) {
+					engine.stop();
+				}
+			} catch (IOException e) {
+				lost(e);
+			}
+		}, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		try {
+			engine.run();
+		} finally {
+			heartbeat.shutdownNow();
+			socket.close();
+		}
+	}
+
+	private void lost(IOException e) {
+		if (engine.isRunning()) {
+			SearchEngine.util.console("Lost the coordinator: " + e.getMessage());
+		}
+		engine.stop();
+	}
+
+	@Override
+	public boolean claim(long[] bounds) {
+		try {
+			while (engine.isRunning()) {
+				String[] reply = request("LEASE").split(" ");
+				switch (reply[0]) {
+					case "CHUNK":
+						bounds[2] = Long.parseLong(reply[1]);
+						bounds[0] = Long.parseLong(reply[2]);
+						bounds[1] = Long.parseLong(reply[3]);
+						return true;
+					case "WAIT":
+						Thread.sleep(Coordinator.WAIT_MS);
+						break;
+					default:
+						return false;
+				}
+			}
+		} catch (IOException e) {
+			lost(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	@Override
+	public void finished(long index) {
+		try {
+			if (request("FINISHED " + index).equals("STOP")) {
+				engine.stop();
+			}
+		} catch (IOException e) {
+			lost(e);
+		}
+	}
+
+	@Override
+	public boolean accepted(long seed) {
+		try {
+			return !request("ACCEPT " + seed).equals("STOP");
+		} catch (IOException e) {
+			lost(e);
+			return false;
+		}
+	}
+}
@@ -9,6 +9,7 @@ import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 import org.json.simple.parser.ParseException;
 import sassa.gui.fxmlController;
+import sassa.util.Util;
 import sassa.util.Version;
 
 import java.io.IOException;
@@ -41,4 +42,10 @@ public class mainApp extends Application {
         fxmlController fxml = new fxmlController();
         fxml.startSeedSearcher();
     }
+
+    @Override
+    public void stop() {
+        // Don't lose output that is still queued when the window is closed
+        Util.closeResultWriter();
+    }
 }
@@ -0,0 +1,152 @@
+package sassa.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends lines to an output file from a background thread.
+ * <p>
+ * The file is opened once and kept open. Callers only put lines on a bounded
+ * queue, if the disk falls behind they block instead of lines getting lost.
+ * The buffer is flushed every {@code flushIntervalMs}, right after an accepted
+ * seed when {@code flushOnAccept} is set, and synced to disk on {@link #close()}.
+ * Once a write fails, lines are dropped, they are still shown in the console.
+ */
+public class ResultWriter {
+
+	public static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+	public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+
+	// Markers compared by identity, never written
+	private static final String FLUSH = new String("flush");
+	private static final String CLOSE = new String("close");
+
+	private final File file;
+	private final long flushIntervalMs;
+	private final boolean flushOnAccept;
+	private final BlockingQueue<String> queue;
+	private final FileOutputStream stream;
+	private final BufferedWriter writer;
+	private final Thread thread;
+
+	private volatile boolean closed = false;
+	private volatile boolean failed = false;
+
+	public ResultWriter(File file, long flushIntervalMs, int queueCapacity, boolean flushOnAccept) throws IOException {
+		this.file = file;
+		this.flushIntervalMs = Math.max(1, flushIntervalMs);
+		this.flushOnAccept = flushOnAccept;
+		this.queue = new ArrayBlockingQueue<>(Math.max(2, queueCapacity));
+		this.stream = new FileOutputStream(file, true);
+		this.writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+		this.thread = new Thread(this::drain, "sassa-result-writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Whether writing to the file failed, nothing is written after that.
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Queues a line, blocking while the queue is full.
+	 */
+	public void write(String line) {
+		put(line);
+	}
+
+	/**
+	 * Queues an accepted seed, followed by a flush if {@code flushOnAccept} is set.
+	 */
+	public void writeAccepted(String line) {
+		put(line);
+		if (flushOnAccept) {
+			put(FLUSH);
+		}
+	}
+
+	private void put(String line) {
+		try {
+			// Offer in slices so a writer closed or failed in the meantime cannot leave us blocked forever
+			while (!closed && !failed) {
+				if (queue.offer(line, 100, TimeUnit.MILLISECONDS)) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void drain() {
+		long lastFlush = System.currentTimeMillis();
+		boolean dirty = false;
+		try {
+			while (true) {
+				String line = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+				if (line == CLOSE) {
+					break;
+				}
+				boolean flush = line == FLUSH;
+				if (line != null && !flush) {
+					writer.write(line);
+					writer.newLine();
+					dirty = true;
+				}
+				if (dirty && (flush || System.currentTimeMillis() - lastFlush >= flushIntervalMs)) {
+					writer.flush();
+					dirty = false;
+					lastFlush = System.currentTimeMillis();
+				}
+			}
+			writer.flush();
+			stream.getChannel().force(true);
+		} catch (IOException e) {
+			failed = true;
+			e.printStackTrace();
+			System.err.println("Could not write to " + file + ", the output is no longer saved: " + e.getMessage());
+		} catch (InterruptedException e) {
+			failed = true;
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Writes everything still queued, syncs the file to disk and closes it.
+	 * Blocks until done.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			// The drain thread may already be gone after a write error
+			while (thread.isAlive() && !queue.offer(CLOSE, 100, TimeUnit.MILLISECONDS)) {
+			}
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
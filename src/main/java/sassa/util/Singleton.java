@@ -22,11 +22,13 @@ public class Singleton {
     private GridPane biomesPane, structurePane, biomeSetsPane;
     private TextArea console;
     private String minecraftVersion;
-    private Text tRejSeed, cRejSeed, sequencedSeed;
+    private Text tRejSeed, cRejSeed, sequencedSeed, stageStats;
     private TextField seedCount, mcPath;
     private fxmlController controller;
     private CheckBox autoSave;
     private File outputFile;
+    private long outputFlushInterval = ResultWriter.DEFAULT_FLUSH_INTERVAL_MS;
+    private boolean flushOnAccept = true;
     private ComboBox worldType;
 
     public void setController(fxmlController controller){
@@ -115,6 +117,14 @@ public class Singleton {
         this.sequencedSeed = sequencedSeed;
     }
 
+    public Text getStageStats(){
+        return stageStats;
+    }
+
+    public void setStageStats(Text stageStats){
+        this.stageStats = stageStats;
+    }
+
     public CheckBox getAutoSave() {
         return autoSave;
     }
@@ -131,6 +141,22 @@ public class Singleton {
         this.outputFile = outputFile;
     }
 
+    public long getOutputFlushInterval() {
+        return outputFlushInterval;
+    }
+
+    public void setOutputFlushInterval(long outputFlushInterval) {
+        this.outputFlushInterval = outputFlushInterval;
+    }
+
+    public boolean isFlushOnAccept() {
+        return flushOnAccept;
+    }
+
+    public void setFlushOnAccept(boolean flushOnAccept) {
+        this.flushOnAccept = flushOnAccept;
+    }
+
     public ComboBox getWorldType() {
         return worldType;
     }
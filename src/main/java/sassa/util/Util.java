@@ -2,6 +2,7 @@ package sassa.util;
 
 import amidst.mojangapi.world.WorldType;
 import javafx.application.Platform;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
 import javafx.stage.FileChooser;
@@ -20,6 +21,7 @@ import java.util.Map;
 public class Util {
 
 	static TextArea console = Singleton.getInstance().getConsole();
+	private static ResultWriter resultWriter;
 	/**
 	 * elapsed time in hours/minutes/seconds
 	 * 
@@ -36,14 +38,82 @@ public class Util {
 	}
 
 	public static void console(String output) {
-		Platform.runLater(() -> {
-			console.appendText(output + "\n");
-		});
+		show(output);
 
-		if(Singleton.getInstance().getAutoSave().isSelected()){
-            appendToFile(Singleton.getInstance().getOutputFile(), output);
+		if(isAutoSaving()){
+			ResultWriter writer = getResultWriter();
+			if (writer != null) writer.write(output);
         }
 	}
+
+	/**
+	 * Same as {@link #console(String)} but for accepted seeds, which the
+	 * output file flushes right away if configured to.
+	 */
+	public static void consoleResult(String output) {
+		show(output);
+
+		if(isAutoSaving()){
+			ResultWriter writer = getResultWriter();
+			if (writer != null) writer.writeAccepted(output);
+		}
+	}
+
+	private static void show(String output) {
+		if (console == null) {
+			// Headless, there is no GUI console to write to
+			System.out.println(output);
+		} else {
+			Platform.runLater(() -> {
+				console.appendText(output + "\n");
+			});
+		}
+	}
+
+	/**
+	 * The writer for the current output file, (re)opened if the file changed.
+	 */
+	private static synchronized ResultWriter getResultWriter() {
+		Singleton singleton = Singleton.getInstance();
+		File file = singleton.getOutputFile();
+		if (file == null) {
+			file = createDefaultOutputFile();
+		}
+		if (resultWriter != null && !resultWriter.getFile().equals(file)) {
+			resultWriter.close();
+			resultWriter = null;
+		}
+		if (resultWriter == null) {
+			try {
+				resultWriter = new ResultWriter(file, singleton.getOutputFlushInterval(), ResultWriter.DEFAULT_QUEUE_CAPACITY, singleton.isFlushOnAccept());
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		return resultWriter;
+	}
+
+	/**
+	 * Writes out everything still queued for the output file and syncs it to disk.
+	 */
+	public static synchronized void closeResultWriter() {
+		if (resultWriter != null) {
+			resultWriter.close();
+			resultWriter = null;
+		}
+	}
+
+	/**
+	 * Headless searches have no auto save check box, they save whenever an
+	 * output file was given.
+	 */
+	private static boolean isAutoSaving() {
+		CheckBox autoSave = Singleton.getInstance().getAutoSave();
+		if (autoSave == null) {
+			return Singleton.getInstance().getOutputFile() != null;
+		}
+		return autoSave.isSelected();
+	}
 	public void consoleNoLine(String output) {
 		Platform.runLater(() -> {
 			console.appendText(output);
@@ -164,6 +234,24 @@ public class Util {
 		}
     }
 
+	/**
+	 * Asks for a checkpoint to resume from, starting at {@code initial}.
+	 *
+	 * @return the chosen file, {@code null} if cancelled
+	 */
+	public File chooseCheckpoint(File initial){
+		Stage stage = new Stage();
+		final FileChooser fileChooser = new FileChooser();
+		fileChooser.setTitle("Resume Search");
+		fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Checkpoints", "*.json"));
+		File directory = initial.getAbsoluteFile().getParentFile();
+		if (directory != null && directory.isDirectory()) {
+			fileChooser.setInitialDirectory(directory);
+		}
+		fileChooser.setInitialFileName(initial.getName());
+		return fileChooser.showOpenDialog(stage);
+	}
+
     private static File createDefaultOutputFile(){
         File outputFile = new File("sassa_output.txt");
         try {
@@ -197,9 +285,9 @@ public class Util {
     }
 
     public WorldType getWorldType(String worldTypeString){
-		if(worldTypeString == "AMPLIFIED"){
+		if("AMPLIFIED".equals(worldTypeString)){
 			return WorldType.AMPLIFIED;
-		} else if ( worldTypeString == "LARGE BIOMES"){
+		} else if ("LARGE BIOMES".equals(worldTypeString)){
 			return WorldType.LARGE_BIOMES;
 		} else {
 			return WorldType.DEFAULT;